@@ -0,0 +1,367 @@
+package pathfinder.informed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Cooperative multi-agent pathfinding over a single MazeProblem using windowed
+ * hierarchical cooperative A* (WHCA*). Agents are planned one at a time in
+ * priority order; each plan is an A* search in (tile, time) space that avoids
+ * every tile and move already claimed in the shared ReservationTable, and then
+ * claims its own tiles and moves. Plans only look a fixed window of steps
+ * ahead, with the true single-agent distance as the heuristic beyond it, so
+ * the work per agent stays bounded no matter how many agents share the maze.
+ * That distance is found lazily by a ResumableDistance per agent, which only
+ * searches the tiles around the agent's route, so neither the memory nor the
+ * time spent on heuristics grows with the size of the maze.
+ */
+public class CooperativePathfinder {
+
+	/**
+	 * Action that keeps an agent on its current tile for one time step.
+	 */
+	public static final String WAIT = "W";
+
+	/**
+	 * Default number of time steps each agent plans before re-planning.
+	 */
+	public static final int DEFAULT_WINDOW = 8;
+
+	/**
+	 * Movement offsets (col, row) indexed by direction, in the same order as
+	 * ACTIONS; opposite directions differ only in their lowest bit.
+	 */
+	static final int[][] OFFSETS = { { 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 } };
+	static final String[] ACTIONS = { "U", "D", "L", "R" };
+	static final int WAIT_DIRECTION = 4;
+
+	/**
+	 * Plans collision-free paths for several agents sharing the given maze,
+	 * using the default window.
+	 *
+	 * @see #solve(MazeProblem, List, List, int)
+	 */
+	public static List<ArrayList<String>> solve(MazeProblem problem, List<MazeState> starts,
+			List<MazeState> goals) {
+		return solve(problem, starts, goals, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Plans collision-free paths for several agents sharing the given maze. No
+	 * two agents ever occupy the same tile at the same time step, and no two
+	 * agents ever swap tiles during a single step. Agents still travelling take priority over
+	 * agents idling on their goals, ties broken by the order they are listed,
+	 * except that an agent boxed in by higher priority agents is promoted to
+	 * just behind the agents promoted before it: its window is planned as if
+	 * they alone went first, and only the agents whose reservations it then
+	 * conflicts with plan theirs again.
+	 *
+	 * @param problem A MazeProblem that specifies the maze and its tile costs;
+	 *                its initial, key and goal states are not used
+	 * @param starts  The starting MazeState (col, row) of each agent
+	 * @param goals   The goal MazeState (col, row) of each agent, indexed like
+	 *                starts
+	 * @param window  Number of time steps each agent plans ahead before all
+	 *                agents re-plan
+	 * @return One ArrayList of actions per agent, indexed like starts, of the
+	 *         format: ["R", "W", "D", ...] where "W" waits in place for a step;
+	 *         or null if some agent cannot reach its goal
+	 */
+	public static List<ArrayList<String>> solve(MazeProblem problem, List<MazeState> starts,
+			List<MazeState> goals, int window) {
+		int agents = starts.size(), cols = problem.getCols();
+		if ((long) problem.getRows() * cols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Maze has too many tiles to index: " + problem.getRows() + " x " + cols);
+		}
+		if (goals.size() != agents) {
+			throw new IllegalArgumentException("Every agent needs exactly one goal");
+		}
+		if (window < 1) {
+			throw new IllegalArgumentException("Window must be at least one step");
+		}
+
+		int[] positions = new int[agents], targets = new int[agents];
+		ResumableDistance[] fields = new ResumableDistance[agents];
+		Set<Integer> occupied = new HashSet<>();
+		for (int a = 0; a < agents; a++) {
+			MazeState start = starts.get(a), goal = goals.get(a);
+			if (!problem.isOpen(start.col, start.row) || !problem.isOpen(goal.col, goal.row)) {
+				throw new IllegalArgumentException("Agent " + a + " starts or ends inside a wall");
+			}
+			positions[a] = start.row * cols + start.col;
+			targets[a] = goal.row * cols + goal.col;
+			if (!occupied.add(positions[a])) {
+				throw new IllegalArgumentException("Two agents share a starting tile");
+			}
+			fields[a] = new ResumableDistance(problem, targets[a], positions[a]);
+			if (fields[a].distance(positions[a]) == DistanceField.UNREACHABLE) {
+				return null;
+			}
+		}
+
+		List<ArrayList<String>> result = new ArrayList<>();
+		for (int a = 0; a < agents; a++) {
+			result.add(new ArrayList<String>());
+		}
+		ReservationTable reservations = new ReservationTable();
+		long maxSteps = (long) window * ((long) problem.getRows() * cols + agents);
+		int time = 0;
+		List<Integer> order = new ArrayList<>();
+		for (int a = 0; a < agents; a++) {
+			order.add(a);
+		}
+
+		while (!allArrived(positions, targets)) {
+			if (time >= maxSteps) {
+				return null;
+			}
+			// Agents still travelling go before agents idling on their goals, so an
+			// idle agent never walls off a corridor that someone else needs
+			Collections.sort(order, (a, b) ->
+					Boolean.compare(positions[a] == targets[a], positions[b] == targets[b]));
+			// Reservations from earlier windows can no longer conflict with anything
+			reservations.prune(time);
+			holdFirstStep(reservations, positions, time);
+			SpaceTimeNode[] ends = new SpaceTimeNode[agents];
+			Deque<Integer> pending = new ArrayDeque<>(order);
+			// Agents promoted in this window, from the highest priority down
+			List<Integer> promoted = new ArrayList<>();
+			int attempts = 0;
+			while (!pending.isEmpty()) {
+				int a = pending.poll();
+				ends[a] = planWindow(problem, reservations, fields[a], a, positions[a], targets[a],
+						time, window);
+				if (ends[a] != null) {
+					reserve(reservations, ends[a], a);
+					continue;
+				}
+				// Boxed in by higher priority agents: promote this agent to just behind
+				// those promoted already, or if they box it in too, to the very front,
+				// where it can always wait
+				if (++attempts > agents) {
+					return null;
+				}
+				order.remove(Integer.valueOf(a));
+				promoted.remove(Integer.valueOf(a));
+				ReservationTable first = new ReservationTable();
+				holdFirstStep(first, positions, time);
+				for (int p : promoted) {
+					reserve(first, ends[p], p);
+				}
+				ends[a] = planWindow(problem, first, fields[a], a, positions[a], targets[a], time, window);
+				if (ends[a] != null) {
+					order.add(promoted.size(), a);
+					promoted.add(a);
+				} else {
+					first = new ReservationTable();
+					holdFirstStep(first, positions, time);
+					ends[a] = planWindow(problem, first, fields[a], a, positions[a], targets[a], time, window);
+					order.add(0, a);
+					promoted.add(0, a);
+				}
+				// Only the agents in its way give up their windows and plan again,
+				// ahead of those still waiting, in their order
+				List<Integer> evicted = conflicts(reservations, ends[a], a);
+				for (int b : evicted) {
+					release(reservations, ends[b], b);
+					promoted.remove(Integer.valueOf(b));
+					reservations.reserve(positions[b], time + 1, b);
+					ends[b] = null;
+				}
+				reserve(reservations, ends[a], a);
+				evicted.sort((x, y) -> Integer.compare(order.indexOf(x), order.indexOf(y)));
+				for (int i = evicted.size() - 1; i >= 0; i--) {
+					pending.addFirst(evicted.get(i));
+				}
+			}
+			for (int a = 0; a < agents; a++) {
+				result.get(a).addAll(ends[a].getPath());
+				positions[a] = ends[a].cell;
+			}
+			time += window;
+		}
+
+		// Agents that arrived early idle at their goals; those trailing waits are implied
+		for (ArrayList<String> path : result) {
+			while (!path.isEmpty() && path.get(path.size() - 1).equals(WAIT)) {
+				path.remove(path.size() - 1);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Space-time A* for a single agent from the given tile at the given time
+	 * until the end of the window, avoiding every reservation of other agents.
+	 * Waiting on the goal is free, so an agent that can reach its goal and stay
+	 * there will.
+	 *
+	 * @return The node reached at the end of the window, from which the path
+	 *         can be read via parents; null if every option collides
+	 */
+	private static SpaceTimeNode planWindow(MazeProblem problem, ReservationTable reservations,
+			ResumableDistance field, int agent, int startCell, int goalCell, int startTime, int window) {
+		int cols = problem.getCols(), endTime = startTime + window;
+		PriorityQueue<SpaceTimeNode> frontier = new PriorityQueue<>();
+		Set<Long> closed = new HashSet<>();
+		frontier.add(new SpaceTimeNode(startCell, startTime, 0, field.bound(startCell), WAIT_DIRECTION, null));
+
+		while (!frontier.isEmpty()) {
+			SpaceTimeNode current = frontier.poll();
+			if (current.time == endTime) {
+				return current;
+			}
+			if (!closed.add(((long) current.time << 32) | current.cell)) {
+				continue;
+			}
+			int col = current.cell % cols, row = current.cell / cols, next = current.time + 1;
+
+			// Wait in place: free on the goal, one step of cost anywhere else
+			if (!reservations.isReserved(current.cell, next, agent)) {
+				int waitCost = current.cell == goalCell ? 0 : 1;
+				frontier.add(new SpaceTimeNode(current.cell, next, current.cost + waitCost,
+						field.bound(current.cell), WAIT_DIRECTION, current));
+			}
+
+			for (int dir = 0; dir < OFFSETS.length; dir++) {
+				int nCol = col + OFFSETS[dir][0], nRow = row + OFFSETS[dir][1];
+				if (!problem.isOpen(nCol, nRow)) {
+					continue;
+				}
+				int nCell = nRow * cols + nCol;
+				// Blocked if someone stands there next step, or is coming the other way
+				if (reservations.isReserved(nCell, next, agent) ||
+					reservations.isEdgeReserved(nCell, dir ^ 1, current.time, agent) ||
+					field.bound(nCell) == DistanceField.UNREACHABLE) {
+					continue;
+				}
+				frontier.add(new SpaceTimeNode(nCell, next, current.cost + problem.getCost(nCol, nRow),
+						field.bound(nCell), dir, current));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Claims every tile and move along the path ending at the given node.
+	 */
+	private static void reserve(ReservationTable reservations, SpaceTimeNode end, int agent) {
+		for (SpaceTimeNode node = end; node != null; node = node.parent) {
+			reservations.reserve(node.cell, node.time, agent);
+			if (node.parent != null && node.direction != WAIT_DIRECTION) {
+				reservations.reserveEdge(node.parent.cell, node.direction, node.parent.time, agent);
+			}
+		}
+	}
+
+	/**
+	 * Drops every claim along the path ending at the given node.
+	 */
+	private static void release(ReservationTable reservations, SpaceTimeNode end, int agent) {
+		for (SpaceTimeNode node = end; node != null; node = node.parent) {
+			reservations.release(node.cell, node.time, agent);
+			if (node.parent != null && node.direction != WAIT_DIRECTION) {
+				reservations.releaseEdge(node.parent.cell, node.direction, node.parent.time, agent);
+			}
+		}
+	}
+
+	/**
+	 * @return The other agents holding a tile the path ending at the given node
+	 *         stands on, or coming the other way along one of its moves
+	 */
+	private static List<Integer> conflicts(ReservationTable reservations, SpaceTimeNode end, int agent) {
+		Set<Integer> found = new HashSet<>();
+		for (SpaceTimeNode node = end; node.parent != null; node = node.parent) {
+			found.add(reservations.getOwner(node.cell, node.time));
+			if (node.direction != WAIT_DIRECTION) {
+				found.add(reservations.getEdgeOwner(node.cell, node.direction ^ 1, node.parent.time));
+			}
+		}
+		found.remove(-1);
+		found.remove(agent);
+		return new ArrayList<>(found);
+	}
+
+	/**
+	 * Claims every agent's current tile for the first step of the window, so no
+	 * agent plans to step onto a tile that is still occupied; every agent can
+	 * therefore always start its window by waiting.
+	 */
+	private static void holdFirstStep(ReservationTable reservations, int[] positions, int time) {
+		for (int a = 0; a < positions.length; a++) {
+			reservations.reserve(positions[a], time + 1, a);
+		}
+	}
+
+	private static boolean allArrived(int[] positions, int[] targets) {
+		for (int a = 0; a < positions.length; a++) {
+			if (positions[a] != targets[a]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
+
+/**
+ * SpaceTimeNode used by the CooperativePathfinder to construct its (tile, time)
+ * search tree.
+ */
+class SpaceTimeNode implements Comparable<SpaceTimeNode> {
+
+	int cell, time, cost, estimate, direction;
+	SpaceTimeNode parent;
+
+	/**
+	 * Constructs a new SpaceTimeNode.
+	 *
+	 * @param cell      Cell index (row * cols + col) of the tile occupied
+	 * @param time      Time step at which the tile is occupied
+	 * @param cost      Cost accumulated since the start of the window
+	 * @param estimate  Estimated remaining cost to the agent's goal
+	 * @param direction Index into OFFSETS of the move that *led to* this node,
+	 *                  or WAIT_DIRECTION
+	 * @param parent    Reference to parent SpaceTimeNode in the search tree
+	 */
+	SpaceTimeNode(int cell, int time, int cost, int estimate, int direction, SpaceTimeNode parent) {
+		this.cell = cell;
+		this.time = time;
+		this.cost = cost;
+		this.estimate = estimate;
+		this.direction = direction;
+		this.parent = parent;
+	}
+
+	/**
+	 * @return The actions leading from the root of the window to this node
+	 */
+	ArrayList<String> getPath() {
+		ArrayList<String> path = new ArrayList<String>();
+		for (SpaceTimeNode node = this; node.parent != null; node = node.parent) {
+			path.add(node.direction == CooperativePathfinder.WAIT_DIRECTION
+					? CooperativePathfinder.WAIT
+					: CooperativePathfinder.ACTIONS[node.direction]);
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	@Override
+	public int compareTo(SpaceTimeNode other) {
+		int f = cost + estimate, otherF = other.cost + other.estimate;
+		if (f != otherF) {
+			return Integer.compare(f, otherF);
+		}
+		// Prefer nodes further along in time to reach the window's end sooner
+		return Integer.compare(other.time, time);
+	}
+
+}
@@ -0,0 +1,127 @@
+package pathfinder.informed;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * True cost-to-go from every open tile of a MazeProblem to a single target
+ * tile, computed once with a reverse Dijkstra sweep. Unlike the Manhattan
+ * estimate used by MazeProblem, this heuristic accounts for walls and mud, so
+ * it is exact for a single agent and stays admissible when other agents force
+ * detours.
+ */
+public class DistanceField {
+
+	/**
+	 * Distance stored for tiles that cannot reach the target.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final MazeState target;
+	private final int cols, rows;
+	// Heap-backed when computed, memory-mapped when reloaded from a MazeSnapshot
+	private final IntBuffer dist;
+
+	/**
+	 * Computes the distance field towards the given target in the given maze.
+	 *
+	 * @param problem The MazeProblem whose walls and mud costs are used
+	 * @param target  The MazeState (col, row) every distance is measured to
+	 */
+	public DistanceField(MazeProblem problem, MazeState target) {
+		this.target = target;
+		this.cols = problem.getCols();
+		this.rows = problem.getRows();
+		int[] dist = new int[cols * rows];
+		this.dist = IntBuffer.wrap(dist);
+		Arrays.fill(dist, UNREACHABLE);
+		if (!problem.isOpen(target.col, target.row)) {
+			return;
+		}
+
+		// Frontier entries pack (distance, cell) into a long so that the natural
+		// ordering of Long is the Dijkstra ordering
+		PriorityQueue<Long> frontier = new PriorityQueue<>();
+		int start = target.row * cols + target.col;
+		dist[start] = 0;
+		frontier.add((long) start);
+		while (!frontier.isEmpty()) {
+			long packed = frontier.poll();
+			int cell = (int) packed, d = (int) (packed >>> 32);
+			if (d > dist[cell]) {
+				continue;
+			}
+			int col = cell % cols, row = cell / cols;
+			// Stepping from a neighbor onto this cell costs this cell's cost
+			int stepCost = problem.getCost(col, row);
+			for (int[] offset : CooperativePathfinder.OFFSETS) {
+				int nCol = col + offset[0], nRow = row + offset[1];
+				if (!problem.isOpen(nCol, nRow)) {
+					continue;
+				}
+				int neighbor = nRow * cols + nCol;
+				if (d + stepCost < dist[neighbor]) {
+					dist[neighbor] = d + stepCost;
+					frontier.add(((long) dist[neighbor] << 32) | neighbor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wraps distances computed earlier, e.g. a region of a mapped MazeSnapshot.
+	 *
+	 * @param target The MazeState (col, row) the distances are measured to
+	 * @param cols   The number of columns in the maze
+	 * @param rows   The number of rows in the maze
+	 * @param dist   cols * rows distances, indexed by row * cols + col
+	 */
+	DistanceField(MazeState target, int cols, int rows, IntBuffer dist) {
+		this.target = target;
+		this.cols = cols;
+		this.rows = rows;
+		this.dist = dist;
+	}
+
+	/**
+	 * @param col Integer column of the tile
+	 * @param row Integer row of the tile
+	 * @return The cheapest cost of walking from the tile to the target, or
+	 *         UNREACHABLE
+	 */
+	public int distance(int col, int row) {
+		return dist.get(row * cols + col);
+	}
+
+	/**
+	 * @param cell Cell index of the tile, row * cols + col
+	 * @return The cheapest cost of walking from the tile to the target, or
+	 *         UNREACHABLE
+	 */
+	public int distance(int cell) {
+		return dist.get(cell);
+	}
+
+	/**
+	 * @return The MazeState (col, row) every distance is measured to
+	 */
+	public MazeState getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return The number of rows covered by this field
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return The number of columns covered by this field
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+}
@@ -0,0 +1,36 @@
+package pathfinder.informed;
+
+import java.util.List;
+
+/**
+ * Read access to the tiles of a maze, independent of how they are stored. A
+ * MazeProblem only ever asks its grid for single tiles and for the locations
+ * of the few landmark tiles ('I', 'K', 'G'), so a grid is free to keep most of
+ * the maze out of memory.
+ */
+public interface MazeGrid {
+
+	/**
+	 * @return The number of rows in the maze
+	 */
+	int getRows();
+
+	/**
+	 * @return The number of columns in the maze
+	 */
+	int getCols();
+
+	/**
+	 * @param col Integer column of the tile, within [0, getCols())
+	 * @param row Integer row of the tile, within [0, getRows())
+	 * @return The character of the tile, one of 'X', '.', 'M', 'I', 'K', 'G'
+	 */
+	char get(int col, int row);
+
+	/**
+	 * @param tile One of the landmark characters 'I', 'K' or 'G'
+	 * @return Every MazeState (col, row) holding the given landmark
+	 */
+	List<MazeState> locate(char tile);
+
+}
@@ -1,11 +1,13 @@
 package pathfinder.informed;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * Specifies the Maze Grid pathfinding problem including the actions, transitions,
@@ -16,13 +18,13 @@ public class MazeProblem {
 
     // Fields
     // -----------------------------------------------------------------------------
-    private String[] maze;
+    private MazeGrid maze;
     private int rows, cols;
     private boolean foundKey;
     public final MazeState INITIAL_STATE, KEY_STATE;
     private Map<String, MazeState> goals = new HashMap<>();
-    private Map<String, MazeState> mudTiles = new HashMap<>();
     private Set<MazeState> graveyard = new HashSet<>();
+    private Map<Integer, DistanceField> distanceFields = new HashMap<>();
     private static final Map<String, MazeState> TRANS_MAP = createTransitions();
 
     /**
@@ -63,38 +65,29 @@ public class MazeProblem {
      * </pre>
      */
     MazeProblem (String[] maze) {
+        this(new StringMazeGrid(maze));
+    }
+
+    /**
+     * Constructs a new MazeProblem over any MazeGrid, e.g., a TiledMazeGrid for
+     * worlds too large to hold in memory. Only the landmark tiles are looked up
+     * here; every other tile is read lazily as the search touches it.
+     *
+     * @param maze The MazeGrid holding the tiles of the maze
+     */
+    MazeProblem (MazeGrid maze) {
         this.maze = maze;
-        this.rows = maze.length;
-        this.cols = (rows == 0) ? 0 : maze[0].length();
-        MazeState foundInitial = null, foundGoal = null, foundKey = null, foundMud = null;;
+        this.rows = maze.getRows();
+        this.cols = maze.getCols();
 
-        // Find the initial and goal state in the given maze, and then
-        // store in fields once found
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                switch (maze[row].charAt(col)) {
-                case 'I':
-                    foundInitial = new MazeState(col, row); break;
-                case 'G':
-                    foundGoal = new MazeState(col, row);
-                    goals.put(foundGoal.toString(), foundGoal);
-                    break;
-                case 'K':
-                    foundKey = new MazeState(col, row); break;
-                case '.':
-                case 'M':
-                  foundMud = new MazeState(col, row);
-                  mudTiles.put(foundMud.toString(), foundMud);
-                  break;
-                case 'X':
-                    break;
-                default:
-                    throw new IllegalArgumentException("Maze formatted invalidly");
-                }
-            }
+        // Find the initial and goal states through the grid's landmarks, and
+        // then store in fields once found
+        List<MazeState> initials = maze.locate('I'), keys = maze.locate('K');
+        for (MazeState goal : maze.locate('G')) {
+            goals.put(goal.toString(), goal);
         }
-        INITIAL_STATE = foundInitial;
-        KEY_STATE = foundKey;
+        INITIAL_STATE = initials.isEmpty() ? null : initials.get(initials.size() - 1);
+        KEY_STATE = keys.isEmpty() ? null : keys.get(keys.size() - 1);
         this.foundKey = (KEY_STATE == null) ? true : false;
     }
 
@@ -138,7 +131,7 @@ public class MazeProblem {
             // map bounds and no wall at the position)...
             if (newState.row >= 0 && newState.row < rows &&
                 newState.col >= 0 && newState.col < cols &&
-                maze[newState.row].charAt(newState.col) != 'X' &&
+                maze.get(newState.col, newState.row) != 'X' &&
                 !graveyard.contains(newState)) {
                 // ...then add it to the result!
                 result.put(action.getKey(), newState);
@@ -169,7 +162,7 @@ public class MazeProblem {
        for (String action : possibleSoln) {
            MazeState actionMod = TRANS_MAP.get(action);
            movingState.add(actionMod);
-           switch (maze[movingState.row].charAt(movingState.col)) {
+           switch (maze.get(movingState.col, movingState.row)) {
            case 'X':
                return result;
            case 'K':
@@ -191,13 +184,51 @@ public class MazeProblem {
      * on what the tile being landed on is.
      */
     public int getCost(MazeState state){
-      if (maze[state.row].charAt(state.col) == 'M') {
+      return getCost(state.col, state.row);
+    }
+
+    /**
+     * Calculates the cost of landing on the tile at the given coordinates.
+     *
+     * @param col Integer column of the tile being landed on
+     * @param row Integer row of the tile being landed on
+     * @return 3 for a mud tile, 1 for any other tile
+     */
+    public int getCost(int col, int row) {
+      if (maze.get(col, row) == 'M') {
         return 3;
       }
       else {
         return 1;
       }
     }
+
+    /**
+     * Determines whether the given coordinates lie inside the maze and are not
+     * a wall, i.e., whether an agent may stand there.
+     *
+     * @param col Integer column to test
+     * @param row Integer row to test
+     * @return true if the tile is in bounds and not a wall
+     */
+    public boolean isOpen(int col, int row) {
+        return row >= 0 && row < rows && col >= 0 && col < cols &&
+               maze.get(col, row) != 'X';
+    }
+
+    /**
+     * @return The number of rows in this maze
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of columns in this maze
+     */
+    public int getCols() {
+        return cols;
+    }
     
     /**
      * Calculates the total cost of from a given node.
@@ -300,4 +331,41 @@ public class MazeProblem {
     	graveyard.clear();
     }
 
+    /**
+     * Returns the true cost-to-go towards the given target from every tile,
+     * computing it on first request and reusing it afterwards.
+     *
+     * @param target A MazeState (col, row) that distances are measured to
+     * @return The DistanceField towards the given target
+     */
+    public DistanceField getDistanceField(MazeState target) {
+        return distanceFields.computeIfAbsent(target.row * cols + target.col,
+                                              k -> new DistanceField(this, target));
+    }
+
+    /**
+     * @return Every DistanceField computed or attached so far
+     */
+    public Collection<DistanceField> getDistanceFields() {
+        return distanceFields.values();
+    }
+
+    /**
+     * Adopts a DistanceField computed elsewhere, e.g. one reloaded from a
+     * MazeSnapshot, so that it is not recomputed on first request.
+     *
+     * @param field The DistanceField for this maze to adopt
+     */
+    void attachDistanceField(DistanceField field) {
+        MazeState target = field.getTarget();
+        distanceFields.put(target.row * cols + target.col, field);
+    }
+
+    /**
+     * @return The MazeGrid holding this maze's tiles
+     */
+    MazeGrid getGrid() {
+        return maze;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+package pathfinder.informed;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned, checksummed snapshot of a parsed MazeProblem together with its
+ * derived DistanceFields. A snapshot is reloaded by memory-mapping the file:
+ * the tiles and distances are read straight out of the mapping rather than
+ * being parsed or recomputed, so a restarted process can answer its first
+ * query without redoing any preprocessing.
+ *
+ * File layout (all integers big-endian):
+ * <pre>
+ * header (32 bytes): int magic, int version, int rows, int cols,
+ *                    int landmarkCount, int fieldCount, int crc32, int 0
+ * body:   landmarkCount x (int tile, int col, int row)
+ *         fieldCount x (int targetCol, int targetRow)
+ *         rows * cols tile bytes, row-major, padded to a multiple of 4
+ *         fieldCount x rows * cols int distances, row-major
+ * </pre>
+ * The checksum covers the whole body followed by the header, whose crc32
+ * field is taken as 0, so that a damaged size or count is caught as surely
+ * as a damaged tile. Snapshots are limited to 2 GB, the
+ * largest region a single mapping can cover.
+ */
+public class MazeSnapshot {
+
+	private static final int MAGIC = 0x4D5A534E, VERSION = 2, HEADER_BYTES = 32;
+	private static final char[] LANDMARKS = { 'I', 'K', 'G' };
+
+	/**
+	 * Writes a snapshot of the given problem, first computing the DistanceFields
+	 * towards its key and each of its goals if they are not computed already.
+	 *
+	 * @param problem The MazeProblem to snapshot
+	 * @param file    Path of the file to create or overwrite
+	 * @throws IOException If the file cannot be written or would exceed 2 GB
+	 */
+	public static void save(MazeProblem problem, Path file) throws IOException {
+		if (problem.KEY_STATE != null) {
+			problem.getDistanceField(problem.KEY_STATE);
+		}
+		for (Object goal : problem.getGoals().values()) {
+			problem.getDistanceField((MazeState) goal);
+		}
+
+		MazeGrid grid = problem.getGrid();
+		int rows = grid.getRows(), cols = grid.getCols();
+		long cells = (long) rows * cols;
+		List<DistanceField> fields = new ArrayList<>(problem.getDistanceFields());
+		List<MazeState> landmarks = new ArrayList<>();
+		List<Character> tiles = new ArrayList<>();
+		for (char tile : LANDMARKS) {
+			for (MazeState state : grid.locate(tile)) {
+				landmarks.add(state);
+				tiles.add(tile);
+			}
+		}
+		long size = HEADER_BYTES + landmarks.size() * 12L + fields.size() * 8L + padded(cells)
+				+ fields.size() * 4L * cells;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Maze snapshot of " + rows + " x " + cols + " tiles would exceed 2 GB");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			CRC32 crc = new CRC32();
+			channel.position(HEADER_BYTES);
+			DataOutputStream body = new DataOutputStream(new CheckedOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+			for (int i = 0; i < landmarks.size(); i++) {
+				body.writeInt(tiles.get(i));
+				body.writeInt(landmarks.get(i).col);
+				body.writeInt(landmarks.get(i).row);
+			}
+			for (DistanceField field : fields) {
+				body.writeInt(field.getTarget().col);
+				body.writeInt(field.getTarget().row);
+			}
+			for (int row = 0; row < rows; row++) {
+				for (int col = 0; col < cols; col++) {
+					body.writeByte(grid.get(col, row));
+				}
+			}
+			for (long pad = cells; pad < padded(cells); pad++) {
+				body.writeByte(0);
+			}
+			for (DistanceField field : fields) {
+				for (int cell = 0; cell < cells; cell++) {
+					body.writeInt(field.distance(cell));
+				}
+			}
+			body.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols)
+				  .putInt(landmarks.size()).putInt(fields.size()).putInt(0).putInt(0);
+			crc.update(header.array());
+			header.putInt(24, (int) crc.getValue());
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		}
+	}
+
+	/**
+	 * Reloads a snapshot, verifying its checksum first.
+	 *
+	 * @see #load(Path, boolean)
+	 */
+	public static MazeProblem load(Path file) throws IOException {
+		return load(file, true);
+	}
+
+	/**
+	 * Reloads a snapshot by memory-mapping it. The returned MazeProblem reads
+	 * its tiles from the mapping and comes with every DistanceField that was
+	 * saved already attached.
+	 *
+	 * @param file   Path of a file produced by save
+	 * @param verify Whether to check the file against the stored checksum; the
+	 *               check reads the whole file once, so callers that trust the
+	 *               file may skip it to load in constant time
+	 * @return The reloaded MazeProblem
+	 * @throws IOException If the file cannot be read, is not a snapshot, has an
+	 *                     unsupported version, or fails its checksum
+	 */
+	public static MazeProblem load(Path file, boolean verify) throws IOException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a maze snapshot");
+			}
+			// The mapping stays valid after the channel is closed
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (mapped.getInt(0) != MAGIC) {
+			throw new IOException("Not a maze snapshot");
+		}
+		if (mapped.getInt(4) != VERSION) {
+			throw new IOException("Unsupported maze snapshot version " + mapped.getInt(4));
+		}
+		int rows = mapped.getInt(8), cols = mapped.getInt(12),
+			landmarkCount = mapped.getInt(16), fieldCount = mapped.getInt(20);
+		if (rows < 0 || cols < 0 || landmarkCount < 0 || fieldCount < 0) {
+			throw new IOException("Maze snapshot header is corrupt");
+		}
+		long expected = HEADER_BYTES + landmarkCount * 12L + fieldCount * 8L + padded((long) rows * cols)
+				+ fieldCount * 4L * rows * cols;
+		if (expected > Integer.MAX_VALUE) {
+			throw new IOException("Maze snapshot of " + rows + " x " + cols + " tiles and " + fieldCount
+					+ " distance fields is too large to map");
+		}
+		if (expected != mapped.capacity()) {
+			throw new IOException("Maze snapshot truncated");
+		}
+		if (verify && checksum(mapped) != mapped.getInt(24)) {
+			throw new IOException("Maze snapshot checksum mismatch");
+		}
+
+		// Every size below fits in an int, the whole file being at most 2 GB
+		int cells = rows * cols, offset = HEADER_BYTES;
+		Map<Character, List<MazeState>> landmarks = new HashMap<>();
+		for (int i = 0; i < landmarkCount; i++, offset += 12) {
+			landmarks.computeIfAbsent((char) mapped.getInt(offset), k -> new ArrayList<>())
+					.add(new MazeState(mapped.getInt(offset + 4), mapped.getInt(offset + 8)));
+		}
+		List<MazeState> targets = new ArrayList<>();
+		for (int i = 0; i < fieldCount; i++, offset += 8) {
+			targets.add(new MazeState(mapped.getInt(offset), mapped.getInt(offset + 4)));
+		}
+		MazeProblem problem = new MazeProblem(
+				new MappedMazeGrid(rows, cols, region(mapped, offset, cells), landmarks));
+		offset += (int) padded(cells);
+		for (MazeState target : targets) {
+			problem.attachDistanceField(new DistanceField(target, cols, rows,
+					region(mapped, offset, 4 * cells).asIntBuffer()));
+			offset += 4 * cells;
+		}
+		return problem;
+	}
+
+	private static long padded(long cells) {
+		return (cells + 3) & ~3L;
+	}
+
+	/**
+	 * @return A view of [offset, offset + length) of the given buffer
+	 */
+	private static ByteBuffer region(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + length);
+		return view.slice();
+	}
+
+	/**
+	 * @return The CRC of the body and then the header, as save computes it
+	 */
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		ByteBuffer view = buffer.duplicate();
+		view.position(HEADER_BYTES);
+		byte[] block = new byte[1 << 16];
+		while (view.hasRemaining()) {
+			int length = Math.min(block.length, view.remaining());
+			view.get(block, 0, length);
+			crc.update(block, 0, length);
+		}
+		byte[] header = new byte[HEADER_BYTES];
+		buffer.duplicate().position(0).get(header);
+		// The crc32 field itself counts as 0
+		Arrays.fill(header, 24, 28, (byte) 0);
+		crc.update(header);
+		return (int) crc.getValue();
+	}
+
+}
+
+/**
+ * MazeGrid reading its tiles straight out of a mapped MazeSnapshot.
+ */
+class MappedMazeGrid implements MazeGrid {
+
+	private final int rows, cols;
+	private final ByteBuffer tiles;
+	private final Map<Character, List<MazeState>> landmarks;
+
+	MappedMazeGrid(int rows, int cols, ByteBuffer tiles, Map<Character, List<MazeState>> landmarks) {
+		this.rows = rows;
+		this.cols = cols;
+		this.tiles = tiles;
+		this.landmarks = landmarks;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public char get(int col, int row) {
+		return (char) tiles.get(row * cols + col);
+	}
+
+	@Override
+	public List<MazeState> locate(char tile) {
+		List<MazeState> found = landmarks.get(tile);
+		return found == null ? new ArrayList<MazeState>() : found;
+	}
+
+}
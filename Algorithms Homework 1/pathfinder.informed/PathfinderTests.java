@@ -2,8 +2,13 @@ package pathfinder.informed;
 
 import static org.junit.Assert.*;
 import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Unit tests for Maze Pathfinder. Tests include completeness and
@@ -239,4 +244,283 @@ public class PathfinderTests {
     }
     
 
+    // Cooperative Pathfinder Tests
+    // -----------------------------------------------
+
+    /**
+     * Replays each agent's actions step by step, failing if two agents ever
+     * share a tile or swap tiles, and returns the final positions.
+     */
+    private static List<MazeState> replay(MazeProblem prob, List<MazeState> starts,
+            List<ArrayList<String>> paths) {
+        String[] names = {"U", "D", "L", "R"};
+        int longest = 0;
+        List<MazeState> positions = new ArrayList<>();
+        for (int a = 0; a < starts.size(); a++) {
+            positions.add(new MazeState(starts.get(a).col, starts.get(a).row));
+            longest = Math.max(longest, paths.get(a).size());
+        }
+        for (int t = 0; t < longest; t++) {
+            List<MazeState> next = new ArrayList<>();
+            for (int a = 0; a < positions.size(); a++) {
+                MazeState moved = new MazeState(positions.get(a).col, positions.get(a).row);
+                String action = t < paths.get(a).size() ? paths.get(a).get(t) : "W";
+                int dir = Arrays.asList(names).indexOf(action);
+                if (dir >= 0) {
+                    moved.add(new MazeState(CooperativePathfinder.OFFSETS[dir][0],
+                                            CooperativePathfinder.OFFSETS[dir][1]));
+                }
+                assertTrue(prob.isOpen(moved.col, moved.row));
+                next.add(moved);
+            }
+            for (int a = 0; a < next.size(); a++) {
+                for (int b = a + 1; b < next.size(); b++) {
+                    assertFalse(next.get(a).equals(next.get(b)));
+                    assertFalse(next.get(a).equals(positions.get(b)) &&
+                                next.get(b).equals(positions.get(a)));
+                }
+            }
+            positions = next;
+        }
+        return positions;
+    }
+
+    @Test
+    public void testCooperative_t0() {
+        String[] maze = {
+            "XXXXXXX",
+            "X.....X",
+            "X.XXX.X",
+            "X.....X",
+            "XXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        // Two agents that must cross each other's path around the pillar
+        List<MazeState> starts = Arrays.asList(new MazeState(1, 1), new MazeState(5, 1));
+        List<MazeState> goals  = Arrays.asList(new MazeState(5, 1), new MazeState(1, 1));
+        List<ArrayList<String>> paths = CooperativePathfinder.solve(prob, starts, goals);
+
+        assertEquals(goals, replay(prob, starts, paths));
+    }
+
+    @Test
+    public void testCooperative_t1() {
+        String[] maze = {
+            "XXXXXXXX",
+            "X......X",
+            "X.M..M.X",
+            "X......X",
+            "X......X",
+            "XXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        // Four agents crossing the room, with a short window to force re-planning
+        List<MazeState> starts = Arrays.asList(new MazeState(1, 1), new MazeState(6, 1),
+                                               new MazeState(1, 4), new MazeState(6, 4));
+        List<MazeState> goals  = Arrays.asList(new MazeState(6, 4), new MazeState(1, 4),
+                                               new MazeState(6, 1), new MazeState(1, 1));
+        List<ArrayList<String>> paths = CooperativePathfinder.solve(prob, starts, goals, 3);
+
+        assertEquals(goals, replay(prob, starts, paths));
+    }
+
+    @Test
+    public void testCooperative_t2() {
+        String[] maze = {
+            "XXXXX",
+            "X.X.X",
+            "XXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        // Goal walled off from the start
+        List<ArrayList<String>> paths = CooperativePathfinder.solve(prob,
+            Arrays.asList(new MazeState(1, 1)), Arrays.asList(new MazeState(3, 1)));
+
+        assertNull(paths);
+    }
+
+    @Test
+    public void testCooperative_t3() {
+        String[] maze = {
+            "XXXXXXXX",
+            "X..M...X",
+            "X.XXXX.X",
+            "X.MM.X.X",
+            "X.XX...X",
+            "XXXXXXXX"
+        };
+        MazeProblem prob = new MazeProblem(maze);
+        int cols = prob.getCols();
+        DistanceField exact = new DistanceField(prob, new MazeState(4, 3));
+        ResumableDistance lazy = new ResumableDistance(prob, 3 * cols + 4, 1 * cols + 1);
+        // Bounds never overestimate, and settled tiles are exact
+        for (int row = 0; row < prob.getRows(); row++) {
+            for (int col = 0; col < cols; col++) {
+                if (prob.isOpen(col, row)) {
+                    assertTrue(lazy.bound(row * cols + col) <= exact.distance(col, row));
+                }
+            }
+        }
+        for (int row = 0; row < prob.getRows(); row++) {
+            for (int col = 0; col < cols; col++) {
+                if (prob.isOpen(col, row)) {
+                    assertEquals(exact.distance(col, row), lazy.distance(row * cols + col));
+                }
+            }
+        }
+
+        // On open ground, only the tiles around the route are searched
+        String[] open = new String[300];
+        StringBuilder row = new StringBuilder();
+        for (int col = 0; col < 300; col++) {
+            row.append('.');
+        }
+        Arrays.fill(open, row.toString());
+        MazeProblem field = new MazeProblem(open);
+        ResumableDistance far = new ResumableDistance(field, 299 * 300 + 299, 0);
+        assertEquals(598, far.distance(0));
+        assertEquals(597, far.bound(1 * 300 + 0));
+        assertTrue(far.size() < 300 * 300 / 10);
+    }
+
+    // Tiled Maze Tests
+    // -----------------------------------------------
+
+    @Test
+    public void testTiledMaze_t0() throws IOException {
+        String[] maze = {
+            "XXXXXXX",
+            "XI....X",
+            "X.MMM.X",
+            "X.XKXGX",
+            "XXXXXXX"
+        };
+        Path file = Files.createTempFile("maze", ".tiles");
+        TiledMazeGrid.write(new StringMazeGrid(maze), 2, file);
+        // Budget of two 2x2 chunks for a maze spanning twelve of them
+        try (TiledMazeGrid grid = TiledMazeGrid.open(file, 8)) {
+            MazeProblem prob = new MazeProblem(grid);
+            ArrayList<String> solution = Pathfinder.solve(prob);
+
+            int[] result = prob.testSolution(solution);
+            assertEquals(1, result[0]);
+            assertEquals(14, result[1]);
+            assertTrue(grid.getResidentChunks() <= 2);
+            assertTrue(grid.getChunkMisses() > 0);
+            assertTrue(grid.getEvictions() > 0);
+            assertTrue(grid.getChunkHits() > 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Maze Snapshot Tests
+    // -----------------------------------------------
+
+    @Test
+    public void testSnapshot_t0() throws IOException {
+        String[] maze = {
+            "XXXXXXX",
+            "XI....X",
+            "X.MMM.X",
+            "X.XKXGX",
+            "XXXXXXX"
+        };
+        MazeProblem original = new MazeProblem(maze);
+        Path file = Files.createTempFile("maze", ".snapshot");
+        try {
+            MazeSnapshot.save(original, file);
+            MazeProblem prob = MazeSnapshot.load(file);
+
+            // Distance fields come back attached rather than recomputed
+            assertEquals(2, prob.getDistanceFields().size());
+            DistanceField toKey = prob.getDistanceField(prob.KEY_STATE);
+            assertEquals(original.getDistanceField(original.KEY_STATE).distance(1, 1),
+                         toKey.distance(1, 1));
+            assertEquals(6, toKey.distance(1, 1));
+
+            ArrayList<String> solution = Pathfinder.solve(prob);
+            int[] result = prob.testSolution(solution);
+            assertEquals(1, result[0]);
+            assertEquals(14, result[1]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSnapshot_t1() throws IOException {
+        String[] maze = {
+            "XXXXX",
+            "XIKGX",
+            "XXXXX"
+        };
+        Path file = Files.createTempFile("maze", ".snapshot");
+        try {
+            MazeSnapshot.save(new MazeProblem(maze), file);
+            // Flip one byte of the body; the checksum must catch it
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(file, bytes);
+            MazeSnapshot.load(file);
+            fail("Corrupted snapshot was loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("checksum"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSnapshot_t2() throws IOException {
+        String[] maze = {
+            "XXXXXXX",
+            "XI....X",
+            "X.MMM.X",
+            "X.XKXGX",
+            "XXXXXXX"
+        };
+        Path file = Files.createTempFile("maze", ".snapshot");
+        try {
+            MazeSnapshot.save(new MazeProblem(maze), file);
+            // Swap rows and cols in the header; the body is still the same size
+            byte[] bytes = Files.readAllBytes(file);
+            for (int i = 8; i < 12; i++) {
+                byte swap = bytes[i];
+                bytes[i] = bytes[i + 4];
+                bytes[i + 4] = swap;
+            }
+            Files.write(file, bytes);
+            MazeSnapshot.load(file, true);
+            fail("Snapshot with a corrupted header was loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("checksum"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSnapshot_t3() throws IOException {
+        String[] maze = {
+            "XXXXX",
+            "XI.GX",
+            "XXXXX"
+        };
+        Path file = Files.createTempFile("maze", ".snapshot");
+        try {
+            MazeSnapshot.save(new MazeProblem(maze), file);
+            // Claim 50000 x 50000 tiles, whose count overflows an int
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).putInt(8, 50000).putInt(12, 50000);
+            Files.write(file, bytes);
+            MazeSnapshot.load(file, false);
+            fail("Oversized snapshot was loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("too large"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * Shared space-time reservation table used by the CooperativePathfinder. Each
+ * reservation claims either a tile at a time step (vertex reservation) or the
+ * move out of a tile in a direction during a time step (edge reservation, used
+ * to forbid two agents swapping places).
+ *
+ * Reservations are packed into longs and kept in a single open-addressing
+ * table, so a lookup is a couple of array reads rather than a MazeState
+ * allocation and a HashMap probe. Reservations that lie in the past are
+ * dropped by prune, which keeps the table proportional to
+ * (agents * window) rather than to the length of the whole plan.
+ */
+public class ReservationTable {
+
+	private static final long EMPTY = -1L, EDGE_FLAG = 1L << 63;
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] owners;
+	private int size;
+
+	/**
+	 * Constructs an empty ReservationTable.
+	 */
+	public ReservationTable() {
+		keys = new long[MIN_CAPACITY];
+		owners = new int[MIN_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	// -----------------------------------------------
+	// Reservations
+	// -----------------------------------------------
+
+	/**
+	 * Claims the given tile at the given time step for the given agent; a
+	 * later claim by another agent replaces the earlier one.
+	 *
+	 * @param cell  Cell index of the tile, row * cols + col
+	 * @param time  Time step of the reservation
+	 * @param agent Integer id of the agent claiming the tile
+	 */
+	public void reserve(int cell, int time, int agent) {
+		put(vertexKey(cell, time), agent);
+	}
+
+	/**
+	 * Claims the move out of the given tile in the given direction during the
+	 * step from time to time + 1.
+	 *
+	 * @param cell      Cell index of the tile being left
+	 * @param direction Index into CooperativePathfinder.OFFSETS of the move
+	 * @param time      Time step at which the move starts
+	 * @param agent     Integer id of the agent making the move
+	 */
+	public void reserveEdge(int cell, int direction, int time, int agent) {
+		put(edgeKey(cell, direction, time), agent);
+	}
+
+	/**
+	 * @return true if the tile is claimed at the given time by an agent other
+	 *         than the given one
+	 */
+	public boolean isReserved(int cell, int time, int agent) {
+		int owner = get(vertexKey(cell, time));
+		return owner >= 0 && owner != agent;
+	}
+
+	/**
+	 * @return true if the move is claimed during the given step by an agent
+	 *         other than the given one
+	 */
+	public boolean isEdgeReserved(int cell, int direction, int time, int agent) {
+		int owner = get(edgeKey(cell, direction, time));
+		return owner >= 0 && owner != agent;
+	}
+
+	/**
+	 * @return The agent claiming the tile at the given time, or -1
+	 */
+	public int getOwner(int cell, int time) {
+		return get(vertexKey(cell, time));
+	}
+
+	/**
+	 * @return The agent claiming the move during the given step, or -1
+	 */
+	public int getEdgeOwner(int cell, int direction, int time) {
+		return get(edgeKey(cell, direction, time));
+	}
+
+	/**
+	 * Drops the claim on the tile at the given time if the given agent holds
+	 * it.
+	 */
+	public void release(int cell, int time, int agent) {
+		remove(vertexKey(cell, time), agent);
+	}
+
+	/**
+	 * Drops the claim on the move during the given step if the given agent
+	 * holds it.
+	 */
+	public void releaseEdge(int cell, int direction, int time, int agent) {
+		remove(edgeKey(cell, direction, time), agent);
+	}
+
+	/**
+	 * Drops every reservation whose time step is earlier than minTime.
+	 *
+	 * @param minTime The earliest time step still of interest
+	 */
+	public void prune(int minTime) {
+		rehash(keys.length, minTime);
+	}
+
+	/**
+	 * Drops every reservation.
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * @return The number of reservations currently stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	// -----------------------------------------------
+	// Open Addressing
+	// -----------------------------------------------
+
+	private static long vertexKey(int cell, int time) {
+		return ((long) time << 32) | (cell & 0xFFFFFFFFL);
+	}
+
+	private static long edgeKey(int cell, int direction, int time) {
+		return EDGE_FLAG | ((long) time << 32) | (((long) cell << 2 | direction) & 0xFFFFFFFFL);
+	}
+
+	private static int timeOf(long key) {
+		return (int) ((key & ~EDGE_FLAG) >>> 32);
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void put(long key, int agent) {
+		if ((size + 1) * 4 > keys.length * 3) {
+			rehash(keys.length * 2, Integer.MIN_VALUE);
+		}
+		int mask = keys.length - 1, i = slot(key, mask);
+		while (keys[i] != EMPTY && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if (keys[i] == EMPTY) {
+			keys[i] = key;
+			size++;
+		}
+		owners[i] = agent;
+	}
+
+	private int get(long key) {
+		int mask = keys.length - 1, i = slot(key, mask);
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				return owners[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the key if the agent owns it, shifting back the keys probed past
+	 * it so that every key stays reachable from its home slot.
+	 */
+	private void remove(long key, int agent) {
+		int mask = keys.length - 1, i = slot(key, mask);
+		while (keys[i] != key) {
+			if (keys[i] == EMPTY) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		if (owners[i] != agent) {
+			return;
+		}
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			// Keys whose home lies cyclically in (i, j] stay where they are
+			if (i <= j ? (i < home && home <= j) : (i < home || home <= j)) {
+				continue;
+			}
+			keys[i] = keys[j];
+			owners[i] = owners[j];
+			i = j;
+		}
+		keys[i] = EMPTY;
+		size--;
+	}
+
+	private void rehash(int capacity, int minTime) {
+		long[] oldKeys = keys;
+		int[] oldOwners = owners;
+		keys = new long[capacity];
+		owners = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			long key = oldKeys[j];
+			if (key == EMPTY || timeOf(key) < minTime) {
+				continue;
+			}
+			int i = slot(key, mask);
+			while (keys[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			owners[i] = oldOwners[j];
+			size++;
+		}
+	}
+
+}
@@ -0,0 +1,268 @@
+package pathfinder.informed;
+
+import java.util.Arrays;
+
+/**
+ * True cost-to-go towards a single target tile, found lazily by a reverse A*
+ * search from the target towards one agent's start (Reverse Resumable A*).
+ * The search stops as soon as the tile asked about is settled and resumes
+ * from where it left off when a tile it has not settled yet is asked about,
+ * so only the tiles around the agent's route are ever searched. Distances are
+ * kept in an open-addressing table of the tiles seen, which grows with that
+ * area rather than with the maze, unlike a DistanceField.
+ *
+ * Settling a tile off the route can take flooding everything between target
+ * and origin, so bound resumes the search only a little way, and only until it
+ * has settled SPARE times the tiles reaching the origin took. Otherwise it
+ * answers a lower bound: the Manhattan distance to the target, or, since every
+ * tile with a smaller total than the frontier's is settled, the frontier's
+ * smallest total less the estimate of the tile. On open ground that bound is
+ * already exact.
+ */
+class ResumableDistance {
+
+	private static final int EMPTY = -1, MIN_CAPACITY = 64;
+	// Most tiles settled to answer a single call to bound
+	static final int RESUME_LIMIT = 64;
+	// How many times the tiles settled on reaching the origin bound may settle
+	static final int SPARE = 4;
+
+	private final MazeProblem problem;
+	private final int cols, targetCol, targetRow, originCol, originRow;
+	// A binary min-heap of the frontier, keyed by distance + estimate in the
+	// high half and the distance taken from Integer.MAX_VALUE in the low: on
+	// open ground many tiles tie on the first, and going deepest first keeps
+	// the search from flooding the whole rectangle between target and origin
+	private long[] keys = new long[MIN_CAPACITY];
+	private int[] heap = new int[MIN_CAPACITY];
+	private int frontier;
+
+	private int[] cells, dist;
+	private boolean[] settled;
+	private int size, settledCount, budget = Integer.MAX_VALUE;
+
+	/**
+	 * Starts the reverse search from the given target towards the given origin.
+	 *
+	 * @param problem The MazeProblem whose walls and mud costs are used
+	 * @param target  Cell index (row * cols + col) every distance is measured to
+	 * @param origin  Cell index of the tile the search heads for, usually the
+	 *                agent's start
+	 */
+	ResumableDistance(MazeProblem problem, int target, int origin) {
+		this.problem = problem;
+		this.cols = problem.getCols();
+		this.targetCol = target % cols;
+		this.targetRow = target / cols;
+		this.originCol = origin % cols;
+		this.originRow = origin / cols;
+		cells = new int[MIN_CAPACITY];
+		dist = new int[MIN_CAPACITY];
+		settled = new boolean[MIN_CAPACITY];
+		Arrays.fill(cells, EMPTY);
+		if (problem.isOpen(target % cols, target / cols)) {
+			dist[put(target)] = 0;
+			push(target, 0);
+		}
+	}
+
+	/**
+	 * @param cell Cell index of the tile, row * cols + col
+	 * @return The cheapest cost of walking from the tile to the target, or
+	 *         DistanceField.UNREACHABLE
+	 */
+	int distance(int cell) {
+		boolean reached = resume(cell, Integer.MAX_VALUE);
+		if (budget == Integer.MAX_VALUE && cell == originRow * cols + originCol) {
+			budget = (int) Math.min(Integer.MAX_VALUE - 1, (long) SPARE * settledCount);
+		}
+		return reached ? dist[find(cell)] : DistanceField.UNREACHABLE;
+	}
+
+	/**
+	 * @param cell Cell index of the tile, row * cols + col
+	 * @return The cheapest cost of walking from the tile to the target if the
+	 *         search settles it within RESUME_LIMIT more tiles, otherwise a
+	 *         lower bound on it; DistanceField.UNREACHABLE if it cannot reach
+	 *         the target at all
+	 */
+	int bound(int cell) {
+		if (resume(cell, Math.min(RESUME_LIMIT, budget - settledCount))) {
+			return dist[find(cell)];
+		}
+		if (frontier == 0) {
+			return DistanceField.UNREACHABLE;
+		}
+		int manhattan = Math.abs(cell % cols - targetCol) + Math.abs(cell / cols - targetRow);
+		return Math.max(manhattan, (int) (keys[0] >>> 32) - toOrigin(cell));
+	}
+
+	/**
+	 * Settles tiles until the given one is settled, limit tiles have been, or
+	 * none are left.
+	 *
+	 * @return Whether the given tile is settled
+	 */
+	private boolean resume(int cell, int limit) {
+		int slot = find(cell);
+		if (slot >= 0 && settled[slot]) {
+			return true;
+		}
+		while (limit > 0 && frontier > 0) {
+			int entry = Integer.MAX_VALUE - (int) keys[0], current = heap[0], i = find(current), d = dist[i];
+			pop();
+			// Settled already, or superseded by a shorter route
+			if (settled[i] || d != entry) {
+				continue;
+			}
+			settled[i] = true;
+			settledCount++;
+			limit--;
+			expand(current, d);
+			if (current == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Relaxes every neighbor of the given settled tile.
+	 */
+	private void expand(int cell, int d) {
+		int col = cell % cols, row = cell / cols;
+		// Stepping from a neighbor onto this cell costs this cell's cost
+		int stepCost = problem.getCost(col, row);
+		for (int[] offset : CooperativePathfinder.OFFSETS) {
+			int nCol = col + offset[0], nRow = row + offset[1];
+			if (!problem.isOpen(nCol, nRow)) {
+				continue;
+			}
+			int neighbor = nRow * cols + nCol, i = find(neighbor);
+			if (i < 0) {
+				i = put(neighbor);
+				dist[i] = DistanceField.UNREACHABLE;
+			}
+			if (!settled[i] && d + stepCost < dist[i]) {
+				dist[i] = d + stepCost;
+				push(neighbor, dist[i]);
+			}
+		}
+	}
+
+	/**
+	 * Manhattan distance to the origin; every step costs at least 1, so it
+	 * never overestimates and the tiles come off the frontier settled.
+	 */
+	private int toOrigin(int cell) {
+		return Math.abs(cell % cols - originCol) + Math.abs(cell / cols - originRow);
+	}
+
+	/**
+	 * @return The number of tiles the search has reached so far
+	 */
+	int size() {
+		return size;
+	}
+
+	// -----------------------------------------------
+	// Frontier Heap
+	// -----------------------------------------------
+
+	private void push(int cell, int d) {
+		if (frontier == heap.length) {
+			keys = Arrays.copyOf(keys, frontier * 2);
+			heap = Arrays.copyOf(heap, frontier * 2);
+		}
+		long key = (long) (d + toOrigin(cell)) << 32 | (Integer.MAX_VALUE - d);
+		int i = frontier++;
+		while (i > 0 && keys[(i - 1) / 2] > key) {
+			keys[i] = keys[(i - 1) / 2];
+			heap[i] = heap[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+		keys[i] = key;
+		heap[i] = cell;
+	}
+
+	private void pop() {
+		long key = keys[--frontier];
+		int cell = heap[frontier], i = 0;
+		while (2 * i + 1 < frontier) {
+			int child = 2 * i + 1;
+			if (child + 1 < frontier && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			keys[i] = keys[child];
+			heap[i] = heap[child];
+			i = child;
+		}
+		keys[i] = key;
+		heap[i] = cell;
+	}
+
+	// -----------------------------------------------
+	// Open Addressing
+	// -----------------------------------------------
+
+	private static int slot(int cell, int mask) {
+		long h = cell * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private int find(int cell) {
+		int mask = cells.length - 1, i = slot(cell, mask);
+		while (cells[i] != EMPTY) {
+			if (cells[i] == cell) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a tile not in the table yet.
+	 *
+	 * @return Its slot
+	 */
+	private int put(int cell) {
+		if ((size + 1) * 4 > cells.length * 3) {
+			rehash(cells.length * 2);
+		}
+		int mask = cells.length - 1, i = slot(cell, mask);
+		while (cells[i] != EMPTY) {
+			i = (i + 1) & mask;
+		}
+		cells[i] = cell;
+		settled[i] = false;
+		size++;
+		return i;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldCells = cells, oldDist = dist;
+		boolean[] oldSettled = settled;
+		cells = new int[capacity];
+		dist = new int[capacity];
+		settled = new boolean[capacity];
+		Arrays.fill(cells, EMPTY);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldCells.length; j++) {
+			if (oldCells[j] == EMPTY) {
+				continue;
+			}
+			int i = slot(oldCells[j], mask);
+			while (cells[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			cells[i] = oldCells[j];
+			dist[i] = oldDist[j];
+			settled[i] = oldSettled[j];
+		}
+	}
+
+}
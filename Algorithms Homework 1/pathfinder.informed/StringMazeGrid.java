@@ -0,0 +1,68 @@
+package pathfinder.informed;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MazeGrid over the classic array of Strings, one String per row.
+ */
+public class StringMazeGrid implements MazeGrid {
+
+	private final String[] maze;
+	private final int rows, cols;
+	private final Map<Character, List<MazeState>> landmarks = new HashMap<>();
+
+	/**
+	 * Wraps the given maze, validating every tile and recording the landmarks.
+	 *
+	 * @param maze An array of Strings in which characters represent the legal
+	 *             maze entities; see MazeProblem
+	 */
+	public StringMazeGrid(String[] maze) {
+		this.maze = maze;
+		this.rows = maze.length;
+		this.cols = (rows == 0) ? 0 : maze[0].length();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				switch (maze[row].charAt(col)) {
+				case 'I':
+				case 'G':
+				case 'K':
+					landmarks.computeIfAbsent(maze[row].charAt(col), k -> new ArrayList<>())
+							.add(new MazeState(col, row));
+					break;
+				case '.':
+				case 'M':
+				case 'X':
+					break;
+				default:
+					throw new IllegalArgumentException("Maze formatted invalidly");
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public char get(int col, int row) {
+		return maze[row].charAt(col);
+	}
+
+	@Override
+	public List<MazeState> locate(char tile) {
+		List<MazeState> found = landmarks.get(tile);
+		return found == null ? new ArrayList<MazeState>() : found;
+	}
+
+}
@@ -0,0 +1,266 @@
+package pathfinder.informed;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MazeGrid for worlds too large to keep in memory. The maze is split into
+ * square chunks of chunkSize x chunkSize tiles, stored one after another in a
+ * file. A chunk is read into a direct (off-heap) ByteBuffer the first time the
+ * search touches one of its tiles, and the least recently used chunks are
+ * evicted once the resident chunks would exceed the memory budget.
+ *
+ * File layout (all integers big-endian):
+ * <pre>
+ * int magic, int version, int rows, int cols, int chunkSize,
+ * int landmarkCount, landmarkCount x (byte tile, int col, int row),
+ * chunk data: chunk (chunkRow, chunkCol) at dataStart + index * chunkSize^2,
+ *             index = chunkRow * chunkCols + chunkCol, tiles row-major,
+ *             tiles past the maze edge padded with 'X'
+ * </pre>
+ */
+public class TiledMazeGrid implements MazeGrid, Closeable {
+
+	private static final int MAGIC = 0x4D5A544C, VERSION = 1;
+
+	private final FileChannel channel;
+	private final int rows, cols, chunkSize, chunkCols, chunkBytes, maxResident;
+	private final long dataStart;
+	private final Map<Character, List<MazeState>> landmarks = new LinkedHashMap<>();
+	private final LinkedHashMap<Integer, ByteBuffer> resident;
+	private final ArrayDeque<ByteBuffer> spare = new ArrayDeque<>();
+
+	// The most recently touched chunk, which absorbs nearly every access since
+	// searches move between neighboring tiles
+	private int lastIndex = -1;
+	private ByteBuffer lastChunk;
+	private long hits, misses, evictions;
+
+	private TiledMazeGrid(FileChannel channel, long memoryBudget) throws IOException {
+		this.channel = channel;
+		DataInputStream in = new DataInputStream(Channels.newInputStream(channel.position(0)));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a tiled maze file");
+		}
+		rows = in.readInt();
+		cols = in.readInt();
+		chunkSize = in.readInt();
+		int landmarkCount = in.readInt();
+		for (int i = 0; i < landmarkCount; i++) {
+			char tile = (char) in.readByte();
+			MazeState state = new MazeState(in.readInt(), in.readInt());
+			landmarks.computeIfAbsent(tile, k -> new ArrayList<>()).add(state);
+		}
+		dataStart = 24 + landmarkCount * 9L;
+		chunkCols = (cols + chunkSize - 1) / chunkSize;
+		chunkBytes = chunkSize * chunkSize;
+		maxResident = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / chunkBytes));
+		// Access-ordered, so iteration starts at the least recently used chunk
+		resident = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	// -----------------------------------------------
+	// Writing / Opening
+	// -----------------------------------------------
+
+	/**
+	 * Writes the given maze to a tiled maze file, streaming one chunk at a time.
+	 *
+	 * @param source    The MazeGrid to copy, e.g. a StringMazeGrid
+	 * @param chunkSize Side length in tiles of each square chunk
+	 * @param file      Path of the file to create or overwrite
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(MazeGrid source, int chunkSize, Path file) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		int rows = source.getRows(), cols = source.getCols();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(rows);
+			out.writeInt(cols);
+			out.writeInt(chunkSize);
+			List<MazeState> found = new ArrayList<>();
+			List<Character> tiles = new ArrayList<>();
+			for (char tile : new char[] { 'I', 'K', 'G' }) {
+				for (MazeState state : source.locate(tile)) {
+					found.add(state);
+					tiles.add(tile);
+				}
+			}
+			out.writeInt(found.size());
+			for (int i = 0; i < found.size(); i++) {
+				out.writeByte(tiles.get(i));
+				out.writeInt(found.get(i).col);
+				out.writeInt(found.get(i).row);
+			}
+			int chunkRows = (rows + chunkSize - 1) / chunkSize,
+				chunkCols = (cols + chunkSize - 1) / chunkSize;
+			for (int cr = 0; cr < chunkRows; cr++) {
+				for (int cc = 0; cc < chunkCols; cc++) {
+					for (int r = cr * chunkSize; r < (cr + 1) * chunkSize; r++) {
+						for (int c = cc * chunkSize; c < (cc + 1) * chunkSize; c++) {
+							out.writeByte(r < rows && c < cols ? source.get(c, r) : 'X');
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a tiled maze file for lazy, chunk-by-chunk reading.
+	 *
+	 * @param file         Path of a file produced by write
+	 * @param memoryBudget Upper bound in bytes on the chunk data kept resident;
+	 *                     at least one chunk is always kept
+	 * @return The TiledMazeGrid, which must be closed once the search is done
+	 * @throws IOException If the file cannot be opened or is not a tiled maze
+	 */
+	public static TiledMazeGrid open(Path file, long memoryBudget) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new TiledMazeGrid(channel, memoryBudget);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// -----------------------------------------------
+	// MazeGrid
+	// -----------------------------------------------
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public char get(int col, int row) {
+		int index = (row / chunkSize) * chunkCols + col / chunkSize;
+		if (index == lastIndex) {
+			hits++;
+		} else {
+			lastChunk = chunk(index);
+			lastIndex = index;
+		}
+		return (char) lastChunk.get((row % chunkSize) * chunkSize + col % chunkSize);
+	}
+
+	@Override
+	public List<MazeState> locate(char tile) {
+		List<MazeState> found = landmarks.get(tile);
+		return found == null ? new ArrayList<MazeState>() : found;
+	}
+
+	/**
+	 * @param index Index of the chunk, chunkRow * chunkCols + chunkCol
+	 * @return The resident buffer for the chunk, loading it (and evicting the
+	 *         least recently used chunk) if needed
+	 */
+	private ByteBuffer chunk(int index) {
+		ByteBuffer buffer = resident.get(index);
+		if (buffer != null) {
+			hits++;
+			return buffer;
+		}
+		misses++;
+		if (resident.size() >= maxResident) {
+			Iterator<Map.Entry<Integer, ByteBuffer>> eldest = resident.entrySet().iterator();
+			spare.push(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+		buffer = spare.isEmpty() ? ByteBuffer.allocateDirect(chunkBytes) : spare.pop();
+		buffer.clear();
+		try {
+			long position = dataStart + (long) index * chunkBytes;
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new IOException("Tiled maze file truncated at chunk " + index);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		resident.put(index, buffer);
+		return buffer;
+	}
+
+	// -----------------------------------------------
+	// Metrics
+	// -----------------------------------------------
+
+	/**
+	 * @return Tile reads served by a chunk that was already resident
+	 */
+	public long getChunkHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Tile reads that had to load their chunk from the file
+	 */
+	public long getChunkMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return Chunks dropped to stay within the memory budget
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return The number of chunks currently held in memory
+	 */
+	public int getResidentChunks() {
+		return resident.size();
+	}
+
+	/**
+	 * @return Side length in tiles of each square chunk
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Zeroes the hit, miss and eviction counters, e.g. between searches.
+	 */
+	public void resetMetrics() {
+		hits = misses = evictions = 0;
+	}
+
+}
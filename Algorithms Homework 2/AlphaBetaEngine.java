@@ -0,0 +1,552 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+
+/**
+ * Negamax alpha-beta search over any GameState, with a transposition table
+ * and iterative deepening, optionally under a time budget. Moves are ordered
+ * to make cutoffs come early: the principal variation of the previous
+ * iteration first, then the best move stored in the transposition table, then
+ * the killer moves that last caused a cutoff at the same ply.
+ *
+ * The search walks the tree by making and unmaking moves on a single
+ * GameState. Each position on the current search path is a frame in parallel
+ * int arrays rather than a call on the Java stack, and the moves of every
+ * frame share one int array, so games far deeper than the call stack can be
+ * searched and nothing is allocated per node.
+ *
+ * Scores are from the point of view of the side to move. A won position
+ * scores WIN minus the number of plies until the win, so the engine prefers
+ * quicker wins and, when lost, the longest resistance; every score at or
+ * beyond DECISIVE is such a proven result.
+ *
+ * An engine searches on one thread at a time, but several engines may share
+ * a SharedTranspositionTable and search the same position at once, as
+ * LazySmpEngine does.
+ */
+public class AlphaBetaEngine {
+
+	/** Score of a position won on the spot */
+	public static final int WIN = 1 << 30;
+	/** Scores at least this large (or this small, negated) are proven results */
+	public static final int DECISIVE = WIN - (1 << 28);
+
+	private static final int INFINITY = WIN + 1;
+	// Proven results hold no matter how deep a later search wants to look
+	private static final int PROVEN_DEPTH = Integer.MAX_VALUE;
+	// The clock is read once every this many nodes (a power of two)
+	private static final int CLOCK_INTERVAL = 1024;
+
+	// Exactly one of the two is set
+	private final TranspositionTable table;
+	private final SharedTranspositionTable shared;
+	// The entry found by the last call to probe
+	private int ttScore, ttDepth, ttMove;
+	private byte ttBound;
+	// Explicit search stack, one entry per position on the current search path
+	private int[] frameAlpha = new int[64], frameBeta = new int[64], frameAlphaOrig = new int[64],
+			frameBest = new int[64], frameBestMove = new int[64], frameDepth = new int[64],
+			frameBase = new int[64], frameCount = new int[64], frameNext = new int[64];
+	private boolean[] framePv = new boolean[64];
+	private int[] moves = new int[256];
+	// Two killer moves per ply, the most recent first
+	private int[] killers = new int[128];
+	// Principal variation of the last completed iteration
+	private int[] pv = new int[64];
+	private int pvLength;
+
+	private int score, depth, iterations;
+	private long nodes, deadline;
+	private boolean timedOut;
+	private volatile boolean stopRequested;
+	private long[] iterationNodes = new long[64];
+
+	/**
+	 * Constructs an AlphaBetaEngine with a transposition table of the default
+	 * size.
+	 */
+	public AlphaBetaEngine() {
+		this(new TranspositionTable());
+	}
+
+	/**
+	 * Constructs an AlphaBetaEngine.
+	 *
+	 * @param table The transposition table to search with, kept across searches
+	 */
+	public AlphaBetaEngine(TranspositionTable table) {
+		this.table = table;
+		this.shared = null;
+	}
+
+	/**
+	 * Constructs an AlphaBetaEngine searching with a table that other engines
+	 * may be searching with at the same time.
+	 *
+	 * @param shared The transposition table to search with, kept across
+	 *               searches
+	 */
+	public AlphaBetaEngine(SharedTranspositionTable shared) {
+		this.table = null;
+		this.shared = shared;
+	}
+
+	// -----------------------------------------------
+	// Drivers
+	// -----------------------------------------------
+
+	/**
+	 * Searches the given position to a fixed depth.
+	 *
+	 * @param state The position to search; left unchanged once search returns
+	 * @param depth Number of plies to look ahead; positions at that depth are
+	 *              scored by GameState.evaluate unless the game is over
+	 * @return The best move found, or GameState.NO_MOVE if the game is over
+	 */
+	public int search(GameState state, int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Depth must be at least one ply");
+		}
+		stopRequested = false;
+		reset();
+		int best = searchRoot(state, depth);
+		this.depth = depth;
+		iterations = 1;
+		iterationNodes[0] = nodes;
+		return best;
+	}
+
+	/**
+	 * Searches the given position one ply deeper at a time, stopping as soon as
+	 * the result is proven or maxDepth is reached.
+	 *
+	 * @param state    The position to search; left unchanged once search returns
+	 * @param maxDepth The deepest iteration to run
+	 * @return The best move of the last iteration, or GameState.NO_MOVE if the
+	 *         game is over
+	 */
+	public int searchIterative(GameState state, int maxDepth) {
+		return searchTimed(state, maxDepth, 0);
+	}
+
+	/**
+	 * Searches the given position one ply deeper at a time until the result is
+	 * proven, maxDepth is reached or the time budget runs out. An iteration cut
+	 * short by the clock is thrown away, so the move returned always comes from
+	 * a fully searched depth; the first iteration always runs to completion.
+	 *
+	 * @param state        The position to search; left unchanged once search
+	 *                     returns
+	 * @param maxDepth     The deepest iteration to run
+	 * @param budgetMillis Milliseconds the search may take, 0 for no limit
+	 * @return The best move of the last completed iteration, or
+	 *         GameState.NO_MOVE if the game is over
+	 */
+	public int searchTimed(GameState state, int maxDepth, long budgetMillis) {
+		stopRequested = false;
+		return searchTimed(state, 1, maxDepth, budgetMillis);
+	}
+
+	/**
+	 * Same as searchTimed, but starts deepening from the given depth, which is
+	 * the iteration always run to completion unless stop is called. Unlike the
+	 * public drivers, a stop requested before this search starts is not
+	 * forgotten, so it cannot be lost to a thread that starts late; it is up
+	 * to the caller to clearStop first.
+	 */
+	int searchTimed(GameState state, int firstDepth, int maxDepth, long budgetMillis) {
+		if (firstDepth < 1 || maxDepth < firstDepth) {
+			throw new IllegalArgumentException("Depth must be at least one ply");
+		}
+		long stop = budgetMillis > 0 ? System.nanoTime() + budgetMillis * 1000000L : 0;
+		reset();
+		int best = GameState.NO_MOVE, bestScore = 0;
+		for (int d = firstDepth; d <= maxDepth; d++) {
+			deadline = d == firstDepth ? 0 : stop;
+			long before = nodes;
+			int move = searchRoot(state, d);
+			if (timedOut) {
+				break;
+			}
+			best = move;
+			bestScore = score;
+			depth = d;
+			if (iterations == iterationNodes.length) {
+				iterationNodes = Arrays.copyOf(iterationNodes, iterationNodes.length * 2);
+			}
+			iterationNodes[iterations++] = nodes - before;
+			collectPv(state, d);
+			if (best == GameState.NO_MOVE || Math.abs(score) >= DECISIVE) {
+				break;
+			}
+		}
+		score = bestScore;
+		return best;
+	}
+
+	/**
+	 * Asks a search running on another thread to return as soon as possible,
+	 * as if its time budget had run out; it still returns the move of its last
+	 * completed iteration, if any. Cleared when the next search starts.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	void clearStop() {
+		stopRequested = false;
+	}
+
+	/**
+	 * Forgets everything learned by the last search except the transposition
+	 * table.
+	 */
+	private void reset() {
+		nodes = 0;
+		depth = iterations = 0;
+		deadline = 0;
+		timedOut = false;
+		pvLength = 0;
+		Arrays.fill(killers, GameState.NO_MOVE);
+	}
+
+	/**
+	 * Reads the principal variation of the iteration just completed out of the
+	 * best moves stored in the transposition table, replaying them on the
+	 * given state and taking them back again.
+	 */
+	private void collectPv(GameState state, int maxLength) {
+		pvLength = 0;
+		while (pvLength < maxLength && probe(state.hash()) && ttMove != GameState.NO_MOVE) {
+			if (pvLength == pv.length) {
+				pv = Arrays.copyOf(pv, pv.length * 2);
+			}
+			pv[pvLength++] = ttMove;
+			state.makeMove(ttMove);
+		}
+		for (int i = pvLength - 1; i >= 0; i--) {
+			state.unmakeMove(pv[i]);
+		}
+	}
+
+	// -----------------------------------------------
+	// Search
+	// -----------------------------------------------
+
+	/**
+	 * Negamax alpha-beta search from the given position with a full window.
+	 * The root is always expanded, even when the table already knows its
+	 * score, since the best move is read off its children.
+	 *
+	 * @return The best move at the root + [Side effect] sets score, or sets
+	 *         timedOut if the deadline passed before the search finished
+	 */
+	private int searchRoot(GameState state, int rootDepth) {
+		int sp = 0, result = 0, rootMove = GameState.NO_MOVE;
+		boolean entering = true;
+		frameAlpha[0] = -INFINITY;
+		frameBeta[0] = INFINITY;
+		frameDepth[0] = rootDepth;
+		frameBase[0] = 0;
+		framePv[0] = pvLength > 0;
+
+		while (sp >= 0) {
+			if (entering) {
+				if ((nodes & (CLOCK_INTERVAL - 1)) == 0
+						&& (stopRequested || deadline != 0 && System.nanoTime() > deadline)) {
+					// Out of time: take back every move on the search path
+					for (int frame = sp - 1; frame >= 0; frame--) {
+						state.unmakeMove(moves[frameBase[frame] + frameNext[frame] - 1]);
+					}
+					timedOut = true;
+					return GameState.NO_MOVE;
+				}
+				nodes++;
+				int ttMove = GameState.NO_MOVE;
+				if (probe(state.hash())) {
+					ttMove = this.ttMove;
+					if (sp > 0 && ttDepth >= frameDepth[sp]) {
+						int stored = fromTable(ttScore, sp);
+						if (ttBound == TranspositionTable.LOWER) {
+							frameAlpha[sp] = Math.max(frameAlpha[sp], stored);
+						} else if (ttBound == TranspositionTable.UPPER) {
+							frameBeta[sp] = Math.min(frameBeta[sp], stored);
+						}
+						if (ttBound == TranspositionTable.EXACT || frameBeta[sp] <= frameAlpha[sp]) {
+							result = stored;
+							sp--;
+							entering = false;
+							continue;
+						}
+					}
+				}
+
+				// Nothing here can beat winning sooner than from a shallower ply, so
+				// once such a win is known the rest of this subtree is cut off
+				if (sp > 0) {
+					frameAlpha[sp] = Math.max(frameAlpha[sp], -(WIN - sp));
+					frameBeta[sp] = Math.min(frameBeta[sp], WIN - sp);
+					if (frameAlpha[sp] >= frameBeta[sp]) {
+						result = frameAlpha[sp];
+						sp--;
+						entering = false;
+						continue;
+					}
+				}
+
+				int base = frameBase[sp];
+				ensureMoves(base + state.maxMoves());
+				int count = state.generateMoves(moves, base);
+				if (count == 0) {
+					// Game over: proven, and sooner is better for the winner
+					result = state.outcome() * (WIN - sp);
+					sp--;
+					entering = false;
+					continue;
+				}
+				if (frameDepth[sp] == 0) {
+					result = state.evaluate();
+					sp--;
+					entering = false;
+					continue;
+				}
+				int next = base;
+				if (framePv[sp]) {
+					next = promote(pv[sp], next, base + count);
+				}
+				next = promote(ttMove, next, base + count);
+				next = promote(killers[2 * sp], next, base + count);
+				promote(killers[2 * sp + 1], next, base + count);
+				frameCount[sp] = count;
+				frameNext[sp] = 0;
+				frameAlphaOrig[sp] = frameAlpha[sp];
+				frameBest[sp] = -INFINITY;
+				frameBestMove[sp] = GameState.NO_MOVE;
+			} else {
+				// Returning from a child with its score, for the opponent, in result
+				int move = moves[frameBase[sp] + frameNext[sp] - 1];
+				state.unmakeMove(move);
+				if (-result > frameBest[sp]) {
+					frameBest[sp] = -result;
+					frameBestMove[sp] = move;
+					frameAlpha[sp] = Math.max(frameAlpha[sp], -result);
+					if (frameAlpha[sp] >= frameBeta[sp] && killers[2 * sp] != move) {
+						killers[2 * sp + 1] = killers[2 * sp];
+						killers[2 * sp] = move;
+					}
+				}
+			}
+
+			if (frameAlpha[sp] < frameBeta[sp] && frameNext[sp] < frameCount[sp]) {
+				int move = moves[frameBase[sp] + frameNext[sp]++];
+				state.makeMove(move);
+				ensureFrames(sp + 1);
+				frameAlpha[sp + 1] = -frameBeta[sp];
+				frameBeta[sp + 1] = -frameAlpha[sp];
+				frameDepth[sp + 1] = frameDepth[sp] - 1;
+				frameBase[sp + 1] = frameBase[sp] + frameCount[sp];
+				framePv[sp + 1] = framePv[sp] && sp + 1 < pvLength && move == pv[sp];
+				sp++;
+				entering = true;
+			} else {
+				// Out of moves or cut off: this frame's score is final
+				result = frameBest[sp];
+				int searched = Math.abs(result) >= DECISIVE ? PROVEN_DEPTH : frameDepth[sp];
+				store(state.hash(), searched, toTable(result, sp),
+						TranspositionTable.boundOf(result, frameAlphaOrig[sp], frameBeta[sp]),
+						frameBestMove[sp]);
+				if (sp == 0) {
+					rootMove = frameBestMove[0];
+				}
+				sp--;
+				entering = false;
+			}
+		}
+		score = result;
+		return rootMove;
+	}
+
+	/**
+	 * Looks the given position up in whichever table this engine searches
+	 * with.
+	 *
+	 * @return Whether an entry was found + [Side effect] sets ttScore, ttDepth,
+	 *         ttBound and ttMove to it
+	 */
+	private boolean probe(long key) {
+		if (shared != null) {
+			long entry = shared.probe(key);
+			if (entry == 0) {
+				return false;
+			}
+			ttScore = SharedTranspositionTable.score(entry);
+			ttDepth = SharedTranspositionTable.depth(entry);
+			ttBound = SharedTranspositionTable.bound(entry);
+			ttMove = SharedTranspositionTable.move(entry);
+			return true;
+		}
+		int slot = table.probe(key);
+		if (slot < 0) {
+			return false;
+		}
+		ttScore = table.score(slot);
+		ttDepth = table.depth(slot);
+		ttBound = table.bound(slot);
+		ttMove = table.move(slot);
+		return true;
+	}
+
+	private void store(long key, int depth, int score, byte bound, int move) {
+		if (shared != null) {
+			shared.store(key, depth, score, bound, move);
+		} else {
+			table.store(key, depth, score, bound, move);
+		}
+	}
+
+	/**
+	 * Moves the given move, if it is among moves[from, to), to index from.
+	 *
+	 * @return The index the next promoted move should go to
+	 */
+	private int promote(int move, int from, int to) {
+		if (move == GameState.NO_MOVE) {
+			return from;
+		}
+		for (int i = from; i < to; i++) {
+			if (moves[i] == move) {
+				moves[i] = moves[from];
+				moves[from] = move;
+				return from + 1;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * Proven results are stored relative to the position rather than to the
+	 * root, so that they stay correct when reached at another ply.
+	 */
+	private static int toTable(int score, int ply) {
+		return score >= DECISIVE ? score + ply : score <= -DECISIVE ? score - ply : score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		return score >= DECISIVE ? score - ply : score <= -DECISIVE ? score + ply : score;
+	}
+
+	/**
+	 * Grows the explicit search stack to hold at least the given frame.
+	 */
+	private void ensureFrames(int frame) {
+		if (frame < frameAlpha.length) {
+			return;
+		}
+		int capacity = Math.max(frame + 1, frameAlpha.length * 2);
+		frameAlpha = Arrays.copyOf(frameAlpha, capacity);
+		frameBeta = Arrays.copyOf(frameBeta, capacity);
+		frameAlphaOrig = Arrays.copyOf(frameAlphaOrig, capacity);
+		frameBest = Arrays.copyOf(frameBest, capacity);
+		frameBestMove = Arrays.copyOf(frameBestMove, capacity);
+		frameDepth = Arrays.copyOf(frameDepth, capacity);
+		frameBase = Arrays.copyOf(frameBase, capacity);
+		frameCount = Arrays.copyOf(frameCount, capacity);
+		frameNext = Arrays.copyOf(frameNext, capacity);
+		framePv = Arrays.copyOf(framePv, capacity);
+		int killerCount = killers.length;
+		killers = Arrays.copyOf(killers, 2 * capacity);
+		Arrays.fill(killers, killerCount, killers.length, GameState.NO_MOVE);
+	}
+
+	private void ensureMoves(int size) {
+		if (size > moves.length) {
+			moves = Arrays.copyOf(moves, Math.max(size, moves.length * 2));
+		}
+	}
+
+	// -----------------------------------------------
+	// Results
+	// -----------------------------------------------
+
+	/**
+	 * @return The score of the root found by the last search, for the side to
+	 *         move there
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return The depth of the last completed search or iteration
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return The number of positions visited by the last search, across all
+	 *         of its iterations including one cut short by the clock
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return The number of positions visited by each completed iteration of
+	 *         the last search, one ply deeper each, the last to getDepth(); a
+	 *         fixed-depth search is a single iteration
+	 */
+	public long[] getIterationNodes() {
+		return Arrays.copyOf(iterationNodes, iterations);
+	}
+
+	/**
+	 * @return Whether the last search ran out of time, or was stopped, before
+	 *         reaching its maximum depth or a proven result
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return The principal variation, the line of best play expected by both
+	 *         sides, found by the last completed iteration of an iterative
+	 *         search; empty after a fixed-depth search
+	 */
+	public int[] getPrincipalVariation() {
+		return Arrays.copyOf(pv, pvLength);
+	}
+
+	/**
+	 * @return A summary of the last search, one line per completed depth
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		long total = 0;
+		for (int i = 0; i < iterations; i++) {
+			total += iterationNodes[i];
+			report.append(String.format("depth %3d: %,12d nodes (%,d total)%n",
+					depth - iterations + 1 + i, iterationNodes[i], total));
+		}
+		report.append(String.format("score %d at depth %d%s", score, depth, timedOut ? ", out of time" : ""));
+		return report.toString();
+	}
+
+	/**
+	 * @return The transposition table this engine searches with, or null if
+	 *         it searches with a SharedTranspositionTable
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * @return The shared transposition table this engine searches with, or
+	 *         null if it has a TranspositionTable of its own
+	 */
+	public SharedTranspositionTable getSharedTranspositionTable() {
+		return shared;
+	}
+
+}
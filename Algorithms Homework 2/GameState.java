@@ -0,0 +1,82 @@
+// Jigar Swaminarayan
+package nim;
+
+/**
+ * Position of a two-player, zero-sum, turn-based game, as searched by the
+ * AlphaBetaEngine. A GameState is mutable: the engine walks the game tree by
+ * making a move and unmaking it again on the way back, so no position is ever
+ * copied during a search.
+ *
+ * Moves are plain ints whose meaning is up to the game, so that generating
+ * moves allocates nothing; NO_MOVE is reserved and never a legal move.
+ * Scores are always from the point of view of the side to move.
+ */
+public interface GameState {
+
+	/**
+	 * Stands in for a move where there is none, e.g. for a position without
+	 * a stored best move.
+	 */
+	int NO_MOVE = -1;
+
+	/**
+	 * Writes the legal moves of this position into the given array, best
+	 * guesses first if the game has any idea which moves are good.
+	 *
+	 * @param moves  Array to fill, with room for maxMoves() entries from offset
+	 * @param offset Index of moves to write the first move to
+	 * @return The number of moves written, 0 if the game is over
+	 */
+	int generateMoves(int[] moves, int offset);
+
+	/**
+	 * @return An upper bound on the number of legal moves of any position
+	 *         reachable from this one
+	 */
+	int maxMoves();
+
+	/**
+	 * Plays the given move, updating the hash incrementally.
+	 *
+	 * @param move A move returned by generateMoves for this position
+	 */
+	void makeMove(int move);
+
+	/**
+	 * Takes back the given move, restoring exactly the position it was played
+	 * from.
+	 *
+	 * @param move The move most recently passed to makeMove
+	 */
+	void unmakeMove(int move);
+
+	/**
+	 * @return 64-bit Zobrist hash of this position; positions whose scores for
+	 *         the side to move may differ, e.g. because a different side is to
+	 *         move, must hash differently
+	 */
+	long hash();
+
+	/**
+	 * Result of a finished game, i.e. of a position without legal moves.
+	 *
+	 * @return 1 if the side to move has won, -1 if it has lost, 0 for a draw
+	 */
+	int outcome();
+
+	/**
+	 * Heuristic score of a position where the search has to stop before the
+	 * game is over; must stay strictly between -AlphaBetaEngine.DECISIVE and
+	 * AlphaBetaEngine.DECISIVE.
+	 *
+	 * @return Estimated score for the side to move, 0 if unknown
+	 */
+	int evaluate();
+
+	/**
+	 * @return An independent copy of this position, e.g. for another thread
+	 *         to search; making moves on either never affects the other
+	 */
+	GameState copy();
+
+}
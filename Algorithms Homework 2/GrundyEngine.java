@@ -0,0 +1,154 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sprague-Grundy solver for (multi-pile) subtraction games. The Grundy number
+ * of every pile size is computed once per rule set into a primitive array;
+ * a position of several piles is then a win for the player to move exactly
+ * when the XOR of its piles' Grundy numbers is non-zero, and a winning move is
+ * found by inspecting each pile once rather than by searching a game tree.
+ * The table only grows up to the end of the first period of the values, past
+ * which piles of any size are answered by the game's PeriodicSolver.
+ */
+public class GrundyEngine {
+
+	private static final Map<NimRules, GrundyEngine> ENGINES = new ConcurrentHashMap<>();
+
+	private final NimRules rules;
+	// Readers only look below computed, which is published after the table
+	private volatile int[] grundy;
+	private volatile int computed;
+	private volatile PeriodicSolver periodic;
+
+	private GrundyEngine(NimRules rules) {
+		this.rules = rules;
+		this.grundy = new int[64];
+		this.computed = 0;
+	}
+
+	/**
+	 * @param rules The rule set to solve
+	 * @return The shared GrundyEngine for the given rule set, whose table is
+	 *         kept and extended across calls
+	 * @throws IllegalArgumentException If the rule set is misere
+	 */
+	public static GrundyEngine forRules(NimRules rules) {
+		if (rules.misere) {
+			throw new IllegalArgumentException("Grundy numbers only solve normal play: " + rules);
+		}
+		return ENGINES.computeIfAbsent(rules, GrundyEngine::new);
+	}
+
+	/**
+	 * @param size The number of stones in a single pile
+	 * @return The Grundy number of a pile of the given size
+	 */
+	public int grundy(int size) {
+		if (size >= computed) {
+			// Beyond the first period the values repeat, so a huge pile needs
+			// no table as large as itself
+			if (periodic == null) {
+				periodic = PeriodicSolver.forRules(rules);
+			}
+			if (size >= periodic.getPreperiod() + periodic.getPeriod()) {
+				return periodic.value(size);
+			}
+			extend(size);
+		}
+		return grundy[size];
+	}
+
+	/**
+	 * Fills the table up to and including the given pile size, where each
+	 * entry is the minimum excluded value among the entries reachable in one
+	 * move.
+	 */
+	private synchronized void extend(int size) {
+		if (size < computed) {
+			return;
+		}
+		int[] table = grundy;
+		if (size >= table.length) {
+			table = Arrays.copyOf(table, Math.max(size + 1, table.length * 2));
+		}
+		// Grundy numbers never exceed the number of options, so the mex is too
+		boolean[] seen = new boolean[rules.removals.length + 1];
+		for (int n = computed; n <= size; n++) {
+			Arrays.fill(seen, false);
+			for (int removal : rules.removals) {
+				if (removal > n) {
+					break;
+				}
+				seen[table[n - removal]] = true;
+			}
+			int mex = 0;
+			while (seen[mex]) {
+				mex++;
+			}
+			table[n] = mex;
+		}
+		grundy = table;
+		computed = size + 1;
+	}
+
+	/**
+	 * @param piles The number of stones in each pile
+	 * @return The XOR of the piles' Grundy numbers; non-zero exactly when the
+	 *         player to move can force a win
+	 */
+	public int value(int[] piles) {
+		int value = 0;
+		for (int pile : piles) {
+			value ^= grundy(pile);
+		}
+		return value;
+	}
+
+	/**
+	 * Picks a move for the player to move. From a winning position this is a
+	 * move to a position of value zero; from a losing position it is the
+	 * smallest removal from the first pile that admits one.
+	 * 
+	 * @param piles The number of stones in each pile
+	 * @return The move as {pile index, stones removed}, or null if no move is
+	 *         possible
+	 */
+	public int[] chooseMove(int[] piles) {
+		int value = value(piles);
+		if (value != 0) {
+			for (int i = 0; i < piles.length; i++) {
+				int target = value ^ grundy(piles[i]);
+				// Only a pile whose Grundy number drops can restore a zero XOR
+				if (target >= grundy(piles[i])) {
+					continue;
+				}
+				for (int removal : rules.removals) {
+					if (removal > piles[i]) {
+						break;
+					}
+					if (grundy(piles[i] - removal) == target) {
+						return new int[] { i, removal };
+					}
+				}
+			}
+		}
+		for (int i = 0; i < piles.length; i++) {
+			if (piles[i] >= rules.minRemoval()) {
+				return new int[] { i, rules.minRemoval() };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The rule set this engine solves
+	 */
+	public NimRules getRules() {
+		return rules;
+	}
+
+}
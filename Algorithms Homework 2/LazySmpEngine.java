@@ -0,0 +1,193 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel alpha-beta search by Lazy SMP: every thread runs its own
+ * AlphaBetaEngine on its own copy of the position, all of them sharing one
+ * SharedTranspositionTable. The threads never talk to each other otherwise;
+ * what one of them stores in the table cuts off, or orders the moves of, the
+ * others, and since they drift apart in timing they soon search different
+ * parts of the tree. Under a time budget, half of the helper threads start
+ * one ply deeper than the main thread to spread them out further.
+ *
+ * The move played is always the main thread's, so the result is that of an
+ * ordinary iterative search, only reached sooner; the helpers are stopped as
+ * soon as the main thread is done.
+ */
+public class LazySmpEngine implements AutoCloseable {
+
+	private final SharedTranspositionTable table;
+	private final AlphaBetaEngine[] workers;
+	// Runs every worker but the main one, which searches on the calling thread
+	private final ExecutorService helpers;
+
+	private long nodes, elapsedNanos;
+
+	/**
+	 * Constructs a LazySmpEngine with a shared transposition table of the
+	 * default size.
+	 *
+	 * @param threads The number of threads searching at once, at least one
+	 */
+	public LazySmpEngine(int threads) {
+		this(threads, new SharedTranspositionTable());
+	}
+
+	/**
+	 * Constructs a LazySmpEngine.
+	 *
+	 * @param threads The number of threads searching at once, at least one
+	 * @param table   The transposition table every thread searches with, kept
+	 *                across searches
+	 */
+	public LazySmpEngine(int threads, SharedTranspositionTable table) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		this.table = table;
+		this.workers = new AlphaBetaEngine[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new AlphaBetaEngine(table);
+		}
+		this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+			// Helpers must not keep the JVM alive once the player is dropped
+			Thread thread = new Thread(r, "lazy-smp-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Searches the given position on every thread one ply deeper at a time,
+	 * until the main thread proves the result, reaches maxDepth or runs out of
+	 * time. Without a time budget every thread searches straight to maxDepth
+	 * instead, since deepening one ply at a time all the way to the end of a
+	 * long game costs far more than it saves.
+	 *
+	 * @param state        The position to search; left unchanged once search
+	 *                     returns
+	 * @param maxDepth     The deepest iteration to run
+	 * @param budgetMillis Milliseconds the search may take, 0 for no limit
+	 * @return The best move of the main thread's last completed iteration, or
+	 *         GameState.NO_MOVE if the game is over
+	 */
+	public int search(GameState state, int maxDepth, long budgetMillis) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Depth must be at least one ply");
+		}
+		long start = System.nanoTime();
+		Future<?>[] running = new Future<?>[workers.length];
+		for (AlphaBetaEngine worker : workers) {
+			worker.clearStop();
+		}
+		for (int i = 1; i < workers.length; i++) {
+			AlphaBetaEngine worker = workers[i];
+			GameState copy = state.copy();
+			int firstDepth = budgetMillis > 0 ? Math.min(1 + (i & 1), maxDepth) : maxDepth;
+			running[i] = helpers.submit(() -> worker.searchTimed(copy, firstDepth, maxDepth, budgetMillis));
+		}
+
+		int best;
+		try {
+			best = workers[0].searchTimed(state, budgetMillis > 0 ? 1 : maxDepth, maxDepth, budgetMillis);
+		} finally {
+			for (int i = 1; i < workers.length; i++) {
+				workers[i].stop();
+			}
+			awaitHelpers(running);
+		}
+
+		nodes = 0;
+		for (AlphaBetaEngine worker : workers) {
+			nodes += worker.getNodes();
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return best;
+	}
+
+	private static void awaitHelpers(Future<?>[] running) {
+		for (int i = 1; i < running.length; i++) {
+			try {
+				running[i].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Helper search failed", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Shuts the helper threads down; the engine cannot search afterwards.
+	 */
+	@Override
+	public void close() {
+		if (helpers != null) {
+			helpers.shutdownNow();
+		}
+	}
+
+	// -----------------------------------------------
+	// Results
+	// -----------------------------------------------
+
+	/**
+	 * @return The score of the root found by the last search, for the side to
+	 *         move there
+	 */
+	public int getScore() {
+		return workers[0].getScore();
+	}
+
+	/**
+	 * @return The depth of the main thread's last completed iteration
+	 */
+	public int getDepth() {
+		return workers[0].getDepth();
+	}
+
+	/**
+	 * @return The number of positions visited by the last search, summed over
+	 *         every thread
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return Positions visited per second by the last search, over every
+	 *         thread
+	 */
+	public double getNodesPerSecond() {
+		return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * @return The engine searching on the calling thread, whose statistics
+	 *         describe the line actually played
+	 */
+	public AlphaBetaEngine getMainEngine() {
+		return workers[0];
+	}
+
+	/**
+	 * @return The number of threads searching at once
+	 */
+	public int getThreads() {
+		return workers.length;
+	}
+
+	/**
+	 * @return The transposition table every thread searches with
+	 */
+	public SharedTranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+}
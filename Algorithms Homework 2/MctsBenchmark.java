@@ -0,0 +1,97 @@
+// Jigar Swaminarayan
+package nim;
+
+/**
+ * Measures the MctsEngine behind NimPlayer's MCTS mode: first how many
+ * playouts per second it runs with 1 to 8 threads, then how often it wins
+ * games the exact Grundy player would win, moving first from won positions of
+ * sizes small enough to solve, against the exact player.
+ *
+ * Usage: java nim.MctsBenchmark [games] [playouts per move]
+ */
+public class MctsBenchmark {
+
+	private static final NimRules[] RULES = { NimRules.upTo(3), new NimRules(1, 3, 4), new NimRules(2, 5, 7) };
+	private static final int[][] STARTS = { { 30 }, { 100 }, { 300 }, { 7, 9, 12 }, { 20, 25, 31 } };
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int playouts = args.length > 1 ? Integer.parseInt(args[1]) : NimPlayer.DEFAULT_PLAYOUTS;
+
+		NimState big = new NimState(new NimRules(1, 3, 4), new int[] { 5000, 4321, 1234 });
+		System.out.printf("Playouts from %s, 500 ms (%d cores):%n", big, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%8s %14s %8s%n", "threads", "playouts/s", "scaling");
+		double single = 0;
+		for (int threads = 1; threads <= 8; threads *= 2) {
+			try (MctsEngine mcts = new MctsEngine(threads, MctsEngine.DEFAULT_CAPACITY)) {
+				mcts.search(big, 0, 500);
+				if (threads == 1) {
+					single = mcts.getPlayoutsPerSecond();
+				}
+				System.out.printf("%8d %,14.0f %7.2fx%n", threads, mcts.getPlayoutsPerSecond(),
+						mcts.getPlayoutsPerSecond() / single);
+			}
+		}
+
+		System.out.printf("%nWin rate against the exact player from won positions, %d playouts per move:%n",
+				playouts);
+		System.out.printf("%-14s %-14s %8s %10s%n", "rules", "start", "games", "win rate");
+		for (NimRules rules : RULES) {
+			GrundyEngine exact = GrundyEngine.forRules(rules);
+			for (int[] start : STARTS) {
+				int[] piles = wonFrom(exact, start);
+				int wins = 0;
+				try (MctsEngine mcts = new MctsEngine()) {
+					for (int game = 0; game < games; game++) {
+						wins += play(rules, piles, mcts, exact, playouts) ? 1 : 0;
+					}
+				}
+				System.out.printf("%-14s %-14s %8d %9.0f%%%n", rules, new NimState(rules, piles), games,
+						100.0 * wins / games);
+			}
+		}
+	}
+
+	/**
+	 * @return The given piles, with the first grown until the position is won
+	 *         for the player to move
+	 */
+	private static int[] wonFrom(GrundyEngine exact, int[] start) {
+		int[] piles = start.clone();
+		while (exact.value(piles) == 0) {
+			piles[0]++;
+		}
+		return piles;
+	}
+
+	/**
+	 * Plays one game, MCTS moving first, in the manner of NimGame's turn loop.
+	 *
+	 * @return Whether MCTS won
+	 */
+	private static boolean play(NimRules rules, int[] start, MctsEngine mcts, GrundyEngine exact, int playouts) {
+		NimState state = new NimState(rules, start);
+		boolean mctsTurn = true;
+		while (true) {
+			int[] piles = state.getPiles();
+			if (mctsTurn) {
+				int move = mcts.search(state, playouts, 0);
+				if (move == GameState.NO_MOVE) {
+					break;
+				}
+				state.makeMove(move);
+			} else {
+				int[] move = exact.chooseMove(piles);
+				if (move == null) {
+					break;
+				}
+				piles[move[0]] -= move[1];
+				state = new NimState(rules, piles);
+			}
+			mctsTurn = !mctsTurn;
+		}
+		// Under normal play the side left without a move has lost
+		return !mctsTurn;
+	}
+
+}
@@ -0,0 +1,420 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Monte Carlo Tree Search over any GameState, for games too large to solve
+ * exactly. Each playout descends the search tree by UCT, adds the children of
+ * the position it stops at, and finishes the game with uniformly random moves;
+ * the move played is the most visited one at the root.
+ *
+ * The tree is kept in parallel arrays with the children of a position stored
+ * next to each other, so nothing is allocated per playout. It survives from
+ * one search to the next: when the new position is the old root or one or
+ * two plies below it, searching continues in that subtree, and only when the
+ * tree is full is it started over. With several threads, each grows a tree of
+ * its own (root parallelization) and their root visit counts are summed.
+ */
+public class MctsEngine implements AutoCloseable {
+
+	/** Number of positions a tree holds by default */
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+	/** Random playouts longer than this many plies are scored as draws */
+	public static final int MAX_PLAYOUT_PLIES = 1000;
+	// Exploration constant of UCT, sqrt(2) for rewards in [0, 1]
+	private static final double EXPLORATION = Math.sqrt(2);
+	// The clock is read once every this many playouts (a power of two)
+	private static final int CLOCK_INTERVAL = 16;
+
+	private final Tree[] trees;
+	// Grows every tree but the first, which grows on the calling thread
+	private final ExecutorService helpers;
+
+	private long playouts, elapsedNanos;
+	private int bestMove = GameState.NO_MOVE;
+	private double winRate;
+
+	/**
+	 * Constructs a single-threaded MctsEngine with a tree of the default
+	 * capacity.
+	 */
+	public MctsEngine() {
+		this(1, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an MctsEngine.
+	 *
+	 * @param threads  The number of trees grown at once, each on its own thread
+	 * @param capacity The number of positions each tree can hold
+	 */
+	public MctsEngine(int threads, int capacity) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		if (capacity < 2) {
+			throw new IllegalArgumentException("A tree must hold at least two positions");
+		}
+		trees = new Tree[threads];
+		for (int i = 0; i < threads; i++) {
+			trees[i] = new Tree(capacity, 0x9E3779B97F4A7C15L * (i + 1));
+		}
+		helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+			Thread thread = new Thread(r, "mcts-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs playouts from the given position until either limit is reached.
+	 *
+	 * @param state        The position to search; left unchanged once search
+	 *                     returns
+	 * @param playouts     Playouts to run over all threads, 0 for no limit
+	 * @param budgetMillis Milliseconds the search may take, 0 for no limit
+	 * @return The most visited move at the root, or GameState.NO_MOVE if the
+	 *         game is over
+	 */
+	public int search(GameState state, long playouts, long budgetMillis) {
+		if (playouts <= 0 && budgetMillis <= 0) {
+			throw new IllegalArgumentException("Search needs a playout or time limit");
+		}
+		bestMove = GameState.NO_MOVE;
+		winRate = 0;
+		this.playouts = 0;
+		if (state.generateMoves(new int[state.maxMoves()], 0) == 0) {
+			return GameState.NO_MOVE;
+		}
+		long start = System.nanoTime();
+		long deadline = budgetMillis > 0 ? start + budgetMillis * 1000000L : 0;
+		long share = playouts > 0 ? Math.max(1, playouts / trees.length) : Long.MAX_VALUE;
+
+		Future<?>[] running = new Future<?>[trees.length];
+		for (int i = 1; i < trees.length; i++) {
+			Tree tree = trees[i];
+			GameState copy = state.copy();
+			running[i] = helpers.submit(() -> tree.search(copy, share, deadline));
+		}
+		trees[0].search(state, share, deadline);
+		for (int i = 1; i < trees.length; i++) {
+			try {
+				running[i].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Helper search failed", e.getCause());
+			}
+		}
+		elapsedNanos = System.nanoTime() - start;
+
+		// Sum the visits of every root move over the trees
+		Tree main = trees[0];
+		int first = main.firstChild[main.root], count = main.childCount[main.root];
+		long bestVisits = -1;
+		for (Tree tree : trees) {
+			this.playouts += tree.playouts;
+		}
+		for (int c = first; c < first + count; c++) {
+			long visits = 0;
+			double wins = 0;
+			for (Tree tree : trees) {
+				int child = tree.child(main.move[c]);
+				if (child >= 0) {
+					visits += tree.visits[child];
+					wins += tree.wins[child];
+				}
+			}
+			if (visits > bestVisits) {
+				bestVisits = visits;
+				bestMove = main.move[c];
+				winRate = visits == 0 ? 0 : wins / visits;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Shuts the helper threads down; the engine cannot search afterwards.
+	 */
+	@Override
+	public void close() {
+		if (helpers != null) {
+			helpers.shutdownNow();
+		}
+	}
+
+	// -----------------------------------------------
+	// Tree
+	// -----------------------------------------------
+
+	/**
+	 * One search tree, grown by one thread at a time.
+	 */
+	private static final class Tree {
+
+		private static final int UNEXPANDED = -1;
+
+		// Per position: index of its first child and number of children, the
+		// move leading to it, and the visits and total reward of playouts
+		// through it, for the side that made that move
+		private final int[] firstChild, childCount, move, visits;
+		private final double[] wins;
+		private int root, size;
+		// Position the root stands for, to find the new root in the old tree
+		private GameState rootState;
+
+		private int[] path = new int[64], playoutMoves = new int[MAX_PLAYOUT_PLIES];
+		private int[] buffer = new int[16];
+		private long random, playouts;
+
+		Tree(int capacity, long seed) {
+			firstChild = new int[capacity];
+			childCount = new int[capacity];
+			move = new int[capacity];
+			visits = new int[capacity];
+			wins = new double[capacity];
+			random = seed;
+		}
+
+		/**
+		 * Runs playouts from the given position until there have been the
+		 * given number or the deadline has passed.
+		 */
+		void search(GameState state, long limit, long deadline) {
+			reuse(state);
+			playouts = 0;
+			while (playouts < limit
+					&& (deadline == 0 || (playouts & (CLOCK_INTERVAL - 1)) != 0 || System.nanoTime() < deadline)) {
+				playout(state);
+				playouts++;
+			}
+			rootState = state.copy();
+		}
+
+		/**
+		 * Makes the position matching the given state the root, if the tree
+		 * holds it within two plies of the current root and has room to grow;
+		 * otherwise starts a new tree.
+		 */
+		private void reuse(GameState state) {
+			if (rootState != null && size < firstChild.length - firstChild.length / 8) {
+				long hash = state.hash();
+				if (rootState.hash() == hash) {
+					return;
+				}
+				int start = firstChild[root], end = start + childCount[root];
+				for (int c = Math.max(start, 0); c < end; c++) {
+					rootState.makeMove(move[c]);
+					int found = rootState.hash() == hash ? c : -1;
+					for (int g = Math.max(firstChild[c], 0); found < 0 && g < firstChild[c] + childCount[c]; g++) {
+						rootState.makeMove(move[g]);
+						if (rootState.hash() == hash) {
+							found = g;
+						}
+						rootState.unmakeMove(move[g]);
+					}
+					rootState.unmakeMove(move[c]);
+					if (found >= 0) {
+						root = found;
+						return;
+					}
+				}
+			}
+			root = 0;
+			size = 1;
+			firstChild[0] = UNEXPANDED;
+			childCount[0] = 0;
+			visits[0] = 0;
+			wins[0] = 0;
+		}
+
+		/**
+		 * One playout: selection by UCT, expansion of the position reached,
+		 * a random game from there, and backpropagation of its result.
+		 */
+		private void playout(GameState state) {
+			int node = root, length = 0;
+			path[length++] = root;
+			while (firstChild[node] >= 0 && childCount[node] > 0) {
+				node = select(node);
+				state.makeMove(move[node]);
+				if (length == path.length) {
+					path = Arrays.copyOf(path, length * 2);
+				}
+				path[length++] = node;
+			}
+			if (firstChild[node] == UNEXPANDED && (visits[node] > 0 || node == root) && expand(node, state)
+					&& childCount[node] > 0) {
+				node = firstChild[node] + nextInt(childCount[node]);
+				state.makeMove(move[node]);
+				if (length == path.length) {
+					path = Arrays.copyOf(path, length * 2);
+				}
+				path[length++] = node;
+			}
+
+			double reward = rollout(state);
+			for (int i = length - 1; i > 0; i--) {
+				state.unmakeMove(move[path[i]]);
+			}
+			// Each position keeps the reward of the side that moved into it
+			for (int i = length - 1; i >= 0; i--) {
+				reward = 1 - reward;
+				visits[path[i]]++;
+				wins[path[i]] += reward;
+			}
+		}
+
+		/**
+		 * @return The child of the given position with the highest UCT value,
+		 *         or its first child never visited
+		 */
+		private int select(int node) {
+			int best = -1;
+			double bestValue = Double.NEGATIVE_INFINITY, logVisits = Math.log(visits[node]);
+			for (int c = firstChild[node]; c < firstChild[node] + childCount[node]; c++) {
+				if (visits[c] == 0) {
+					return c;
+				}
+				double value = wins[c] / visits[c] + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+				if (value > bestValue) {
+					bestValue = value;
+					best = c;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Adds every child of the given position to the tree, unless it is
+		 * full.
+		 *
+		 * @return Whether the position is now expanded
+		 */
+		private boolean expand(int node, GameState state) {
+			ensureBuffer(state.maxMoves());
+			int count = state.generateMoves(buffer, 0);
+			if (size + count > firstChild.length) {
+				return false;
+			}
+			firstChild[node] = size;
+			childCount[node] = count;
+			for (int i = 0; i < count; i++) {
+				int c = size++;
+				firstChild[c] = UNEXPANDED;
+				childCount[c] = 0;
+				move[c] = buffer[i];
+				visits[c] = 0;
+				wins[c] = 0;
+			}
+			return true;
+		}
+
+		/**
+		 * Plays uniformly random moves until the game is over, then takes them
+		 * all back.
+		 *
+		 * @return The reward of the game for the side to move at the start: 1
+		 *         for a win, 0 for a loss and 1/2 for a draw
+		 */
+		private double rollout(GameState state) {
+			ensureBuffer(state.maxMoves());
+			int plies = 0;
+			double reward = 0.5;
+			while (plies < MAX_PLAYOUT_PLIES) {
+				int count = state.generateMoves(buffer, 0);
+				if (count == 0) {
+					reward = (state.outcome() + 1) / 2.0;
+					if ((plies & 1) == 1) {
+						reward = 1 - reward;
+					}
+					break;
+				}
+				int chosen = buffer[nextInt(count)];
+				state.makeMove(chosen);
+				playoutMoves[plies++] = chosen;
+			}
+			for (int i = plies - 1; i >= 0; i--) {
+				state.unmakeMove(playoutMoves[i]);
+			}
+			return reward;
+		}
+
+		/**
+		 * @return The root's child reached by the given move, or -1
+		 */
+		int child(int m) {
+			for (int c = firstChild[root]; c >= 0 && c < firstChild[root] + childCount[root]; c++) {
+				if (move[c] == m) {
+					return c;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return A pseudo-random int in [0, bound), from an xorshift64*
+		 *         generator
+		 */
+		private int nextInt(int bound) {
+			random ^= random >>> 12;
+			random ^= random << 25;
+			random ^= random >>> 27;
+			return (int) ((((random * 0x2545F4914F6CDD1DL) >>> 32) * bound) >>> 32);
+		}
+
+		private void ensureBuffer(int size) {
+			if (size > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+			}
+		}
+	}
+
+	// -----------------------------------------------
+	// Results
+	// -----------------------------------------------
+
+	/**
+	 * @return The move chosen by the last search
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return The mean reward of playouts through the chosen move, an estimate
+	 *         of the chance that the side to move wins by playing it
+	 */
+	public double getWinRate() {
+		return winRate;
+	}
+
+	/**
+	 * @return The number of playouts run by the last search over every thread
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * @return Playouts per second of the last search, over every thread
+	 */
+	public double getPlayoutsPerSecond() {
+		return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * @return The number of trees grown at once
+	 */
+	public int getThreads() {
+		return trees.length;
+	}
+
+}
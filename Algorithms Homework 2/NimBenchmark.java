@@ -0,0 +1,97 @@
+// Jigar Swaminarayan
+package nim;
+
+/**
+ * Times NimPlayer's ALPHA_BETA mode, which searches with the generic
+ * AlphaBetaEngine, against the original recursive search over GameTreeNodes
+ * (still available as the debug tree mode) on the same positions. Every
+ * measurement uses fresh players, so neither side profits from a warm
+ * transposition table. Then prints the nodes searched per depth by a
+ * time-limited iterative search, and finally how the nodes searched per second
+ * by a LazySmpEngine scale from 1 to 32 threads.
+ *
+ * Usage: java nim.NimBenchmark [repetitions]
+ */
+public class NimBenchmark {
+
+	private static final NimRules[] RULES = { NimRules.upTo(3), new NimRules(1, 3, 4),
+			new NimRules(2, 5, 7), NimRules.upTo(3).misere() };
+	// The recursive search needs one Java stack frame per ply
+	private static final int[] TREE_PILES = { 100, 1000, 3000 };
+	private static final int[] ENGINE_PILES = { 100000, 1000000 };
+
+	public static void main(String[] args) {
+		int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		// Warm up the JIT on both code paths before measuring
+		for (int i = 0; i < 5; i++) {
+			for (NimRules rules : RULES) {
+				time(rules, 1000, false, 1);
+				time(rules, 1000, true, 1);
+			}
+		}
+
+		System.out.printf("%-22s %9s %12s %12s %8s%n", "rules", "pile", "tree (us)", "engine (us)", "speedup");
+		for (NimRules rules : RULES) {
+			for (int pile : TREE_PILES) {
+				double tree = time(rules, pile, true, repetitions),
+					   engine = time(rules, pile, false, repetitions);
+				System.out.printf("%-22s %9d %12.1f %12.1f %7.2fx%n", rules, pile, tree, engine, tree / engine);
+			}
+			for (int pile : ENGINE_PILES) {
+				double engine = time(rules, pile, false, Math.max(1, repetitions / 10));
+				System.out.printf("%-22s %9d %12s %12.1f %8s%n", rules, pile, "-", engine, "-");
+			}
+		}
+
+		// Nodes per depth of a time-limited iterative search of a position too
+		// large to solve, first with an empty table, then with the table the
+		// first search left behind
+		AlphaBetaEngine engine = new AlphaBetaEngine();
+		NimState state = new NimState(new NimRules(1, 3, 4), new int[] { 5000, 4321, 1234 });
+		for (int move = 0; move < 2; move++) {
+			engine.searchTimed(state, Integer.MAX_VALUE, 200);
+			System.out.printf("%nIterative deepening from %s, 200 ms:%n%s%n", state, engine.report());
+		}
+
+		// Lazy SMP scaling on a misere game of several piles, which no table
+		// lookup answers; every thread count starts from an empty table
+		NimState misere = new NimState(new NimRules(1, 3, 4).misere(), new int[] { 500, 432, 123, 77 });
+		System.out.printf("%nLazy SMP from misere %s, 500 ms (%d cores):%n", misere,
+				Runtime.getRuntime().availableProcessors());
+		System.out.printf("%8s %14s %14s %8s %6s%n", "threads", "nodes", "nodes/s", "scaling", "depth");
+		// Otherwise the single thread runs cold and every later count looks faster
+		for (int i = 0; i < 3; i++) {
+			try (LazySmpEngine smp = new LazySmpEngine(2)) {
+				smp.search(misere, Integer.MAX_VALUE, 500);
+			}
+		}
+		double single = 0;
+		for (int threads = 1; threads <= 32; threads *= 2) {
+			try (LazySmpEngine smp = new LazySmpEngine(threads)) {
+				smp.search(misere, Integer.MAX_VALUE, 500);
+				if (threads == 1) {
+					single = smp.getNodesPerSecond();
+				}
+				System.out.printf("%8d %,14d %,14.0f %7.2fx %6d%n", threads, smp.getNodes(), smp.getNodesPerSecond(),
+						smp.getNodesPerSecond() / single, smp.getDepth());
+			}
+		}
+	}
+
+	/**
+	 * @return Mean microseconds to choose a move from the given pile with a
+	 *         fresh player
+	 */
+	private static double time(NimRules rules, int pile, boolean tree, int repetitions) {
+		long total = 0;
+		for (int i = 0; i < repetitions; i++) {
+			NimPlayer player = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA);
+			player.setDebugTree(tree);
+			long start = System.nanoTime();
+			player.choose(pile);
+			total += System.nanoTime() - start;
+		}
+		return total / 1000.0 / repetitions;
+	}
+
+}
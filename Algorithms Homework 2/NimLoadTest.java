@@ -0,0 +1,84 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load test of NimSessionManager: plays many sessions at once against
+ * opponents making random legal moves, then reports how many agent moves were
+ * made per second and the median and 99th percentile latency of
+ * NimPlayer.choose. Runs once with a player answering from Grundy numbers and
+ * once with searching players sharing one cache.
+ *
+ * Usage: java nim.NimLoadTest [sessions] [pile]
+ */
+public class NimLoadTest {
+
+	public static void main(String[] args) {
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int pile = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		NimRules rules = new NimRules(1, 3, 4);
+
+		System.out.printf("%d sessions of %s from %d stones%n", sessions, rules, pile);
+		System.out.printf("%-22s %12s %10s %10s %10s%n", "agent", "moves/s", "p50 (us)", "p99 (us)", "max (us)");
+		run("grundy", new NimPlayer(rules, NimPlayer.SearchMode.GRUNDY), sessions, pile);
+		run("alpha-beta, shared", new NimPlayer(rules, new SharedTranspositionTable()), sessions, pile);
+	}
+
+	private static void run(String name, NimPlayer agent, int sessions, int pile) {
+		int[] removals = agent.getRules().getRemovals();
+		List<CompletableFuture<NimSessionManager.Result>> results = new ArrayList<>(sessions);
+		long start = System.nanoTime();
+		try (NimSessionManager manager = new NimSessionManager(agent)) {
+			for (int i = 0; i < sessions; i++) {
+				results.add(manager.start(pile, remaining -> randomMove(removals, remaining)));
+			}
+			CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		int moves = 0;
+		for (CompletableFuture<NimSessionManager.Result> result : results) {
+			moves += result.join().chooseNanos.length;
+		}
+		long[] latencies = new long[moves];
+		int i = 0;
+		for (CompletableFuture<NimSessionManager.Result> result : results) {
+			long[] nanos = result.join().chooseNanos;
+			System.arraycopy(nanos, 0, latencies, i, nanos.length);
+			i += nanos.length;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%-22s %,12.0f %10.1f %10.1f %10.1f%n", name, moves * 1e9 / elapsed,
+				percentile(latencies, 0.50) / 1000.0, percentile(latencies, 0.99) / 1000.0,
+				latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000.0);
+	}
+
+	/**
+	 * @return A random legal removal from a pile of the given size
+	 */
+	private static int randomMove(int[] removals, int remaining) {
+		int legal = 0;
+		while (legal < removals.length && removals[legal] <= remaining) {
+			legal++;
+		}
+		return removals[ThreadLocalRandom.current().nextInt(legal)];
+	}
+
+	/**
+	 * @param sorted Latencies in ascending order
+	 * @return The smallest latency at least the given fraction of them are at
+	 *         most
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+	}
+
+}
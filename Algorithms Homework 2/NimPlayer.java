@@ -1,20 +1,145 @@
 // Jigar Swaminarayan
 package nim;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * Artificial Intelligence responsible for playing the game of Nim! Implements
- * the alpha-beta-pruning mini-max search algorithm
+ * Artificial Intelligence responsible for playing the game of Nim! Searches
+ * the game tree with the generic AlphaBetaEngine over NimStates, on one
+ * thread or on several with a LazySmpEngine, samples it by Monte Carlo Tree
+ * Search where it is too large to solve, and by
+ * default answers from the Sprague-Grundy numbers of the game instead, since
+ * every rule set it plays is impartial.
+ *
+ * A NimPlayer may be asked for moves by several threads at once. Lookups
+ * answer concurrently; searches with a transposition table of the player's
+ * own take turns, while searches with a SharedTranspositionTable run side by
+ * side, each on an engine of its own, so every game played with the same
+ * cache profits from positions any of them has solved.
+ *
+ * A player in PARALLEL or MCTS mode keeps helper threads for its engine until
+ * it is closed.
  */
-public class NimPlayer {
+public class NimPlayer implements AutoCloseable {
+
+	/**
+	 * How a NimPlayer decides on its moves.
+	 */
+	public enum SearchMode {
+		/** Table lookup of Grundy numbers through a GrundyEngine */
+		GRUNDY,
+		/** Alpha-beta pruning search of the game tree by an AlphaBetaEngine */
+		ALPHA_BETA,
+		/** Single lookup in a memory-mapped NimTablebase */
+		TABLEBASE,
+		/** Alpha-beta search on several threads at once by a LazySmpEngine */
+		PARALLEL,
+		/** Monte Carlo Tree Search by an MctsEngine, one tree per thread */
+		MCTS
+	}
+
+	/** Playouts per move in MCTS mode without a time budget */
+	public static final int DEFAULT_PLAYOUTS = 20000;
 
 	private final int MAX_REMOVAL;
+	private final NimRules rules;
+	private final SearchMode mode;
+	private final GrundyEngine grundy;
+	private final NimTablebase tablebase;
+	// Its transposition table is kept across calls to choose, so later moves of
+	// a game are answered from it
+	private final AlphaBetaEngine engine;
+	private final LazySmpEngine parallel;
+	private final MctsEngine mcts;
+	// Set when searching with a cache shared across threads, which engines are
+	// borrowed from idle for the length of one search
+	private final SharedTranspositionTable cache;
+	private final Queue<AlphaBetaEngine> idle = new ConcurrentLinkedQueue<>();
+	private volatile long timeBudget;
+	private volatile boolean debugTree;
+	private TranspositionTable treeTable;
+	private GameTreeNode lastTree;
 
 	NimPlayer(int MAX_REMOVAL) {
-		this.MAX_REMOVAL = MAX_REMOVAL;
+		this(NimRules.upTo(MAX_REMOVAL), SearchMode.GRUNDY);
+	}
+
+	/**
+	 * Constructs a NimPlayer for the given rule set.
+	 * 
+	 * @param rules The allowed removals of the game being played
+	 * @param mode  How moves are decided
+	 */
+	NimPlayer(NimRules rules, SearchMode mode) {
+		this(rules, mode, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a NimPlayer for the given rule set.
+	 * 
+	 * @param rules   The allowed removals of the game being played
+	 * @param mode    How moves are decided
+	 * @param threads The number of threads searching at once in PARALLEL and
+	 *                MCTS mode
+	 */
+	NimPlayer(NimRules rules, SearchMode mode, int threads) {
+		if (mode == SearchMode.TABLEBASE) {
+			throw new IllegalArgumentException("TABLEBASE mode needs a NimTablebase");
+		}
+		if (mode == SearchMode.GRUNDY && rules.misere) {
+			throw new IllegalArgumentException("GRUNDY mode only plays normal-play rules");
+		}
+		this.MAX_REMOVAL = rules.maxRemoval();
+		this.rules = rules;
+		this.mode = mode;
+		// Grundy numbers only describe normal play
+		this.grundy = rules.misere ? null : GrundyEngine.forRules(rules);
+		this.tablebase = null;
+		this.engine = mode == SearchMode.ALPHA_BETA ? new AlphaBetaEngine() : null;
+		this.parallel = mode == SearchMode.PARALLEL ? new LazySmpEngine(threads) : null;
+		this.mcts = mode == SearchMode.MCTS ? new MctsEngine(threads, MctsEngine.DEFAULT_CAPACITY) : null;
+		this.cache = null;
+	}
+
+	/**
+	 * Constructs a NimPlayer in ALPHA_BETA mode that searches with the given
+	 * cache, which may be shared with other players of the same rules, and
+	 * lets any number of threads search at once.
+	 * 
+	 * @param rules The allowed removals of the game being played
+	 * @param cache The transposition table every search is made with
+	 */
+	NimPlayer(NimRules rules, SharedTranspositionTable cache) {
+		this.MAX_REMOVAL = rules.maxRemoval();
+		this.rules = rules;
+		this.mode = SearchMode.ALPHA_BETA;
+		this.grundy = rules.misere ? null : GrundyEngine.forRules(rules);
+		this.tablebase = null;
+		this.engine = null;
+		this.parallel = null;
+		this.mcts = null;
+		this.cache = cache;
+	}
+
+	/**
+	 * Constructs a NimPlayer in TABLEBASE mode, answering every move with a
+	 * single lookup in the given tablebase.
+	 * 
+	 * @param tablebase A NimTablebase covering the positions to be played
+	 */
+	NimPlayer(NimTablebase tablebase) {
+		this.rules = tablebase.getRules();
+		this.MAX_REMOVAL = rules.maxRemoval();
+		this.mode = SearchMode.TABLEBASE;
+		this.grundy = rules.misere ? null : GrundyEngine.forRules(rules);
+		this.tablebase = tablebase;
+		this.engine = null;
+		this.parallel = null;
+		this.mcts = null;
+		this.cache = null;
 	}
 
 	/**
@@ -24,96 +149,293 @@ public class NimPlayer {
 	 *         range of [1, MAX_REMOVAL]
 	 */
 	public int choose(int remaining) {
+		if (mode == SearchMode.GRUNDY) {
+			int[] move = grundy.chooseMove(new int[] { remaining });
+			return move == null ? -1 : move[1];
+		}
+		if (mode == SearchMode.TABLEBASE) {
+			// A single pile is the tablebase position with every other pile empty
+			int[] piles = new int[tablebase.getPileCount()];
+			piles[0] = remaining;
+			int[] move = tablebase.bestMove(piles);
+			return move == null ? -1 : move[1];
+		}
+		if (debugTree) {
+			return chooseWithTree(remaining);
+		}
 		
+		// Every game of a single pile is over within remaining / minRemoval plies,
+		// so a search that deep is solved exactly
+		NimState state = new NimState(rules, new int[] { remaining });
+		int maxDepth = remaining / rules.minRemoval() + 1;
+		int move = search(state, maxDepth);
+		return move == GameState.NO_MOVE ? -1 : state.removal(move);
+	}
+
+	/**
+	 * Searches the given position with whichever engine this player's mode
+	 * uses, under the time budget if there is one.
+	 * 
+	 * @return The best move found, or GameState.NO_MOVE if the game is over
+	 */
+	private int search(NimState state, int maxDepth) {
+		long budget = timeBudget;
+		if (mode == SearchMode.MCTS) {
+			synchronized (mcts) {
+				return mcts.search(state, budget > 0 ? 0 : DEFAULT_PLAYOUTS, budget);
+			}
+		}
+		if (mode == SearchMode.PARALLEL) {
+			synchronized (parallel) {
+				return parallel.search(state, maxDepth, budget);
+			}
+		}
+		if (cache == null) {
+			synchronized (engine) {
+				return budget > 0 ? engine.searchTimed(state, maxDepth, budget) : engine.search(state, maxDepth);
+			}
+		}
+		AlphaBetaEngine borrowed = idle.poll();
+		if (borrowed == null) {
+			borrowed = new AlphaBetaEngine(cache);
+		}
+		try {
+			return budget > 0 ? borrowed.searchTimed(state, maxDepth, budget) : borrowed.search(state, maxDepth);
+		} finally {
+			idle.offer(borrowed);
+		}
+	}
+
+	/**
+	 * Chooses a move for a single pile too large for an int, answered in
+	 * constant time from the periodic pattern of the game's values no matter
+	 * the search mode.
+	 * 
+	 * @param remaining The amount of stones left in the pile
+	 * @return The number of stones to remove, or -1 if no move is possible
+	 */
+	public int choose(long remaining) {
+		return PeriodicSolver.forRules(rules).chooseMove(remaining);
+	}
+
+	/**
+	 * @see #choose(long)
+	 */
+	public int choose(BigInteger remaining) {
+		return PeriodicSolver.forRules(rules).chooseMove(remaining);
+	}
+
+	/**
+	 * Same as choose, but materializes the explored game tree out of
+	 * GameTreeNodes, which is kept for inspection until the next move.
+	 */
+	private synchronized int chooseWithTree(int remaining) {
 		int bestAction = -1;
 		int maxScore = Integer.MIN_VALUE;
+		if (treeTable == null) {
+			treeTable = new TranspositionTable(16);
+		}
 		
 		GameTreeNode root = new GameTreeNode(remaining, 0, true);
-		Map<GameTreeNode, Integer> graveyard = new HashMap<>();
-		root.score = alphaBetaMinimax(root, Integer.MIN_VALUE, Integer.MAX_VALUE, true, graveyard);
-
-		for (GameTreeNode child : root.children) {
+		for (int i : rules.removals) {
+			if (i > remaining) {
+				break;
+			}
+			GameTreeNode child = new GameTreeNode(remaining - i, i, false);
+			root.children.add(child);
+			child.score = alphaBetaMinimax(child, maxScore, Integer.MAX_VALUE);
 			if (child.score > maxScore && child.score <= MAX_REMOVAL) {
 				maxScore = child.score;
 				bestAction = child.action;
 			}
 		}
+		root.score = maxScore;
+		lastTree = root;
 		return bestAction;
 	}
 
+	/**
+	 * Bounds the time choose may take in ALPHA_BETA, PARALLEL and MCTS mode.
+	 * With a budget, the game is searched one ply deeper at a time and the move
+	 * of the deepest search completed in time is played, which is only sure to
+	 * be best if that search reached the end of the game; MCTS runs playouts
+	 * until the time is up.
+	 * 
+	 * @param millis Milliseconds per move, or 0 to always solve the game
+	 *               exactly, or run DEFAULT_PLAYOUTS playouts in MCTS mode (the
+	 *               default)
+	 */
+	public void setTimeBudget(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("Time budget cannot be negative");
+		}
+		this.timeBudget = millis;
+	}
+
+	/**
+	 * [Debug] Turns materialization of the game tree on or off for later calls
+	 * to choose in ALPHA_BETA mode. Off by default, since the whole explored
+	 * tree stays reachable until choose returns.
+	 * 
+	 * @param debugTree Whether choose should build GameTreeNodes
+	 */
+	public synchronized void setDebugTree(boolean debugTree) {
+		this.debugTree = debugTree;
+		this.lastTree = null;
+	}
+
+	/**
+	 * @return [Debug] The root of the game tree built by the last call to
+	 *         choose, or null if tree materialization is off
+	 */
+	synchronized GameTreeNode getLastTree() {
+		return lastTree;
+	}
+
+	/**
+	 * Chooses a move in a game of several piles, which is answered from the
+	 * tablebase in TABLEBASE mode, by searching every pile at once in PARALLEL
+	 * and MCTS mode and under misere rules, which Grundy numbers do not
+	 * describe, and from the Grundy numbers of the piles otherwise.
+	 * 
+	 * @param piles The number of stones left in each pile
+	 * @return The move as {pile index, stones removed}, or null if no move is
+	 *         possible
+	 */
+	public int[] choose(int[] piles) {
+		if (mode == SearchMode.TABLEBASE) {
+			return tablebase.bestMove(piles);
+		}
+		if (mode == SearchMode.PARALLEL || mode == SearchMode.MCTS || grundy == null) {
+			// Every stone taken brings the end of the game closer
+			long stones = 0;
+			for (int pile : piles) {
+				stones += pile;
+			}
+			NimState state = new NimState(rules, piles);
+			int move = search(state, (int) Math.min(stones / rules.minRemoval() + 1, Integer.MAX_VALUE));
+			return move == GameState.NO_MOVE ? null : new int[] { state.pile(move), state.removal(move) };
+		}
+		return grundy.chooseMove(piles);
+	}
+
 	/**
 	 * Constructs the minimax game tree by the tenets of alpha-beta pruning with
-	 * memoization for repeated states.
+	 * memoization for repeated states in the transposition table.
 	 * 
-	 * @param node    The root of the current game sub-tree
-	 * @param alpha   Smallest minimax score possible
-	 * @param beta    Largest minimax score possible
-	 * @param isMax   Boolean representing whether the given node is a max (true) or
-	 *                min (false) node
-	 * @param visited Map of GameTreeNodes to their minimax scores to avoid
-	 *                repeating large subtrees
+	 * @param node  The root of the current game sub-tree
+	 * @param alpha Smallest minimax score possible
+	 * @param beta  Largest minimax score possible
 	 * @return Minimax score of the given node + [Side effect] constructs the game
 	 *         tree originating from the given node
 	 */
-	private int alphaBetaMinimax(GameTreeNode node, int alpha, int beta, boolean isMax,
-			Map<GameTreeNode, Integer> visited) {
+	private int alphaBetaMinimax(GameTreeNode node, int alpha, int beta) {
 		
-		int v;
+		if (node.remaining < rules.minRemoval()) {
+			node.score = rules.terminalScore(node.isMax);
+			return node.score;
+		}
 		
-		if (node.remaining < 1) {
-			if (node.isMax) {
-				node.score = 0;
+		// A stored bound may settle the node outright, or at least narrow the window
+		long key = node.remaining * 2L + (node.isMax ? 1 : 0);
+		int slot = treeTable.probe(key);
+		if (slot >= 0) {
+			byte bound = treeTable.bound(slot);
+			int stored = treeTable.score(slot);
+			if (bound == TranspositionTable.EXACT) {
+				node.score = stored;
+				return stored;
+			} else if (bound == TranspositionTable.LOWER) {
+				alpha = Math.max(alpha, stored);
 			} else {
-				node.score = 1;
+				beta = Math.min(beta, stored);
+			}
+			if (beta <= alpha) {
+				node.score = stored;
+				return stored;
 			}
-			return node.score;
 		}
+		int alphaOrig = alpha, betaOrig = beta;
 		
-		if (node.isMax) {
-			v = Integer.MIN_VALUE;
-			for (int i = 1; i <= Math.min(MAX_REMOVAL, node.remaining); i++) {
-				GameTreeNode child = new GameTreeNode(node.remaining - i, i, false);
-				node.children.add(child);
-				
-				if (visited.containsKey(child)) {
-					child.score = visited.get(child);
-				} else {
-					child.score = alphaBetaMinimax(child, alpha, beta, false, visited);
-				}
-				
-				node.score = Math.max(child.score, node.score);
-				
-				v = Math.max(v,  child.score);
-				alpha = Math.max(v,  alpha);
-				visited.put(child, child.score);
-				if (beta <= alpha) {
-					break;
-				}
+		int v = node.isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int i : rules.removals) {
+			if (i > node.remaining) {
+				break;
 			}
-			return v;
-		} else {
-			v = Integer.MAX_VALUE;
-			for (int i = 1; i <= Math.min(MAX_REMOVAL, node.remaining); i++) {
-				GameTreeNode child = new GameTreeNode(node.remaining - i, i, true);
-				node.children.add(child);
-				
-				if (visited.containsKey(child)) {
-					child.score = visited.get(child);
-				} else {
-					child.score = alphaBetaMinimax(child, alpha, beta, true, visited);
-				}
-				
-				node.score = Math.min(child.score, child.score);
-				
+			GameTreeNode child = new GameTreeNode(node.remaining - i, i, !node.isMax);
+			node.children.add(child);
+			child.score = alphaBetaMinimax(child, alpha, beta);
+			
+			if (node.isMax) {
+				v = Math.max(v, child.score);
+				alpha = Math.max(v, alpha);
+			} else {
 				v = Math.min(v, child.score);
 				beta = Math.min(beta, v);
-				visited.put(child, child.score);
-				if (beta <= alpha) {
-					break;
-				}
 			}
-			return v;
+			if (beta <= alpha) {
+				break;
+			}
+		}
+		node.score = v;
+		treeTable.store(key, Integer.MAX_VALUE, v, TranspositionTable.boundOf(v, alphaOrig, betaOrig),
+				GameState.NO_MOVE);
+		return v;
+	}
+
+	/**
+	 * Shuts down the helper threads of the engine searching for this player in
+	 * PARALLEL or MCTS mode, after which it cannot choose by search; does
+	 * nothing in every other mode.
+	 */
+	@Override
+	public void close() {
+		if (parallel != null) {
+			parallel.close();
 		}
+		if (mcts != null) {
+			mcts.close();
+		}
+	}
+
+	/**
+	 * @return The rules this player plays by
+	 */
+	public NimRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return The engine searching for this player in ALPHA_BETA mode, whose
+	 *         statistics describe the last move chosen; null in every other
+	 *         mode, and when searching with a shared cache
+	 */
+	AlphaBetaEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return The parallel engine searching for this player in PARALLEL mode,
+	 *         or null in every other mode
+	 */
+	LazySmpEngine getParallelEngine() {
+		return parallel;
+	}
+
+	/**
+	 * @return The engine searching for this player in MCTS mode, or null in
+	 *         every other mode
+	 */
+	MctsEngine getMctsEngine() {
+		return mcts;
+	}
+
+	/**
+	 * @return The transposition table this player keeps across moves in
+	 *         ALPHA_BETA mode, or null in every other mode
+	 */
+	TranspositionTable getTranspositionTable() {
+		return engine == null ? null : engine.getTranspositionTable();
 	}
 }
 
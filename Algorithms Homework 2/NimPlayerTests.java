@@ -1,6 +1,14 @@
 package nim;
 
 import static org.junit.Assert.*;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
@@ -100,4 +108,434 @@ public class NimPlayerTests {
         assertEquals(1, nimesis.choose(1000));
     }
 
+    /**
+     * Grundy numbers of the subtraction game {1, 3, 4},
+     * which repeat 0 1 0 1 2 3 2 with period 7
+     */
+    @Test
+    public void GrundyEngineTest_t0() {
+        GrundyEngine engine = GrundyEngine.forRules(new NimRules(1, 3, 4));
+        int[] period = {0, 1, 0, 1, 2, 3, 2};
+        for (int n = 0; n < 70; n++) {
+            assertEquals(period[n % 7], engine.grundy(n));
+        }
+    }
+    
+    /**
+     * Many piles: the chosen move must leave a zero XOR
+     * when the position is winning
+     */
+    @Test
+    public void GrundyEngineTest_t1() {
+        NimPlayer nimesis = new NimPlayer(3);
+        GrundyEngine engine = GrundyEngine.forRules(NimRules.upTo(3));
+        assertArrayEquals(new int[] {1, 1}, nimesis.choose(new int[] {5, 6}));
+        int[] piles = {13, 7, 22, 9};
+        int[] move = nimesis.choose(piles);
+        piles[move[0]] -= move[1];
+        assertEquals(0, engine.value(piles));
+        assertNull(nimesis.choose(new int[] {0, 0}));
+    }
+    
+    /**
+     * Alpha-beta search and the Grundy engine must agree
+     * on every single-pile position, even without 1 as a removal
+     */
+    @Test
+    public void GrundyEngineTest_t2() {
+        NimRules rules = new NimRules(2, 3, 5);
+        NimPlayer searcher = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA),
+                  lookup = new NimPlayer(rules, NimPlayer.SearchMode.GRUNDY);
+        GrundyEngine engine = GrundyEngine.forRules(rules);
+        for (int n = 2; n < 60; n++) {
+            if (engine.grundy(n) != 0) {
+                assertEquals(lookup.choose(n), searcher.choose(n));
+                assertEquals(0, engine.grundy(n - lookup.choose(n)));
+            }
+        }
+    }
+
+    /**
+     * Grundy values of piles 0 through size - 1, straight
+     * from the rules: the mex of the values one move away
+     */
+    private static int[] mexTable(NimRules rules, int size) {
+        int[] table = new int[size];
+        for (int n = 0; n < size; n++) {
+            boolean[] seen = new boolean[rules.getRemovals().length + 1];
+            for (int removal : rules.getRemovals()) {
+                if (removal <= n && table[n - removal] < seen.length) {
+                    seen[table[n - removal]] = true;
+                }
+            }
+            while (seen[table[n]]) {
+                table[n]++;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Piles near Integer.MAX_VALUE are answered from the
+     * period of the values, without a table that large
+     */
+    @Test
+    public void GrundyEngineTest_t3() {
+        NimPlayer nimesis = new NimPlayer(3);
+        assertEquals(Integer.MAX_VALUE % 4, nimesis.choose(Integer.MAX_VALUE));
+        assertEquals(-1, nimesis.choose(0));
+        
+        NimRules rules = new NimRules(1, 3, 4);
+        GrundyEngine engine = GrundyEngine.forRules(rules);
+        // {1, 3, 4} repeats with period 7 from the start; a run as long
+        // as the largest removal repeating makes it repeat for good
+        int[] mex = mexTable(rules, 100);
+        for (int n = 7; n < mex.length; n++) {
+            assertEquals(mex[n - 7], mex[n]);
+        }
+        int[] piles = {Integer.MAX_VALUE, Integer.MAX_VALUE - 5, 12};
+        assertEquals(mex[piles[0] % 7] ^ mex[piles[1] % 7] ^ mex[piles[2] % 7],
+                     engine.value(piles));
+        int[] move = engine.chooseMove(piles);
+        piles[move[0]] -= move[1];
+        assertEquals(0, engine.value(piles));
+    }
+
+    /**
+     * Alpha-beta mode on the flavor country cases; the
+     * transposition table is kept between moves so the
+     * follow-up positions are answered from it
+     */
+    @Test
+    public void TranspositionTableTest_t0() {
+        NimPlayer nimesis = new NimPlayer(NimRules.upTo(3), NimPlayer.SearchMode.ALPHA_BETA);
+        assertEquals(1, nimesis.choose(1000));
+        assertEquals(1, nimesis.choose(40));
+        long probes = nimesis.getTranspositionTable().getProbes();
+        assertEquals(3, nimesis.choose(39));
+        assertEquals(2, nimesis.choose(38));
+        // Answered from the table within a handful of probes
+        TranspositionTable table = nimesis.getTranspositionTable();
+        assertTrue(table.getProbes() - probes < 20);
+        assertTrue(table.getHits() >= 6);
+    }
+
+    /**
+     * The tree-free search survives piles far deeper than
+     * the call stack, and agrees with the debug tree search
+     */
+    @Test
+    public void TreeFreeSearchTest_t0() {
+        NimPlayer nimesis = new NimPlayer(NimRules.upTo(3), NimPlayer.SearchMode.ALPHA_BETA);
+        assertEquals(3, nimesis.choose(1000003));
+        assertNull(nimesis.getLastTree());
+        
+        NimRules rules = new NimRules(1, 3, 4);
+        GrundyEngine engine = GrundyEngine.forRules(rules);
+        NimPlayer debug = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA),
+                  plain = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA);
+        debug.setDebugTree(true);
+        // Both leave the opponent lost whenever that is possible
+        for (int n = 1; n < 200; n++) {
+            assertEquals(engine.grundy(n - debug.choose(n)) == 0,
+                         engine.grundy(n - plain.choose(n)) == 0);
+        }
+        assertEquals(3, debug.getLastTree().children.size());
+    }
+
+    /**
+     * The generic engine solves several piles at once, in
+     * agreement with the Grundy numbers, preferring the
+     * quickest win, and leaves the position as it found it
+     */
+    @Test
+    public void AlphaBetaEngineTest_t0() {
+        NimRules rules = new NimRules(1, 3, 4);
+        GrundyEngine grundy = GrundyEngine.forRules(rules);
+        AlphaBetaEngine engine = new AlphaBetaEngine();
+        for (int a = 0; a <= 12; a++) {
+            for (int b = 0; b <= 12; b++) {
+                NimState state = new NimState(rules, new int[] {a, b});
+                long hash = state.hash();
+                int move = engine.search(state, a + b + 1);
+                assertEquals(hash, state.hash());
+                boolean win = grundy.value(new int[] {a, b}) != 0;
+                assertEquals(win, engine.getScore() >= AlphaBetaEngine.DECISIVE);
+                if (win) {
+                    int[] piles = state.getPiles();
+                    piles[state.pile(move)] -= state.removal(move);
+                    assertEquals(0, grundy.value(piles));
+                }
+            }
+        }
+        // Taking all 4 wins on the spot; iterative deepening stops there
+        NimState four = new NimState(rules, new int[] {4});
+        assertEquals(4, four.removal(engine.searchIterative(four, 50)));
+        assertEquals(AlphaBetaEngine.WIN - 1, engine.getScore());
+        assertEquals(1, engine.getDepth());
+        assertEquals(GameState.NO_MOVE, engine.search(new NimState(rules, new int[] {0, 0}), 5));
+    }
+
+    /**
+     * Under a time budget, a pile far too large to solve
+     * still gets a legal move from a completed depth, and
+     * small piles are still solved exactly
+     */
+    @Test
+    public void IterativeDeepeningTest_t0() {
+        NimPlayer nimesis = new NimPlayer(NimRules.upTo(3), NimPlayer.SearchMode.ALPHA_BETA);
+        nimesis.setTimeBudget(100);
+        long start = System.nanoTime();
+        int move = nimesis.choose(100000003);
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        assertTrue(move >= 1 && move <= 3);
+        AlphaBetaEngine engine = nimesis.getEngine();
+        assertTrue(engine.isTimedOut());
+        assertEquals(engine.getDepth(), engine.getIterationNodes().length);
+        assertTrue(engine.getPrincipalVariation().length > 0);
+        for (long nodes : engine.getIterationNodes()) {
+            assertTrue(nodes > 0);
+        }
+        
+        assertEquals(1, nimesis.choose(9));
+        assertFalse(engine.isTimedOut());
+        assertTrue(engine.getScore() >= AlphaBetaEngine.DECISIVE);
+        assertEquals(1, new NimState(NimRules.upTo(3), new int[] {9}).removal(engine.getPrincipalVariation()[0]));
+    }
+
+    /**
+     * Shared table entries survive packing, and a parallel
+     * player finds the winning move on several piles,
+     * including misere ones no Grundy lookup answers
+     */
+    @Test
+    public void LazySmpTest_t0() {
+        SharedTranspositionTable table = new SharedTranspositionTable(4);
+        table.store(42, Integer.MAX_VALUE, -(AlphaBetaEngine.WIN - 3), TranspositionTable.UPPER, 7);
+        long entry = table.probe(42);
+        assertEquals(Integer.MAX_VALUE, SharedTranspositionTable.depth(entry));
+        assertEquals(-(AlphaBetaEngine.WIN - 3), SharedTranspositionTable.score(entry));
+        assertEquals(TranspositionTable.UPPER, SharedTranspositionTable.bound(entry));
+        assertEquals(7, SharedTranspositionTable.move(entry));
+        assertEquals(0, table.probe(42 + 16));
+        
+        NimRules rules = new NimRules(1, 3, 4);
+        GrundyEngine grundy = GrundyEngine.forRules(rules);
+        NimPlayer nimesis = new NimPlayer(rules, NimPlayer.SearchMode.PARALLEL, 4);
+        for (int a = 0; a <= 10; a++) {
+            for (int b = 0; b <= 10; b++) {
+                int[] piles = {a, b, 5};
+                int[] move = nimesis.choose(piles);
+                if (grundy.value(piles) != 0) {
+                    piles[move[0]] -= move[1];
+                    assertEquals(0, grundy.value(piles));
+                }
+            }
+        }
+        
+        // Misere single-removal Nim: the player to move loses iff
+        // the stone count is odd
+        NimPlayer misere = new NimPlayer(NimRules.upTo(1).misere(), NimPlayer.SearchMode.PARALLEL, 2);
+        assertEquals(1, misere.choose(new int[] {2, 4})[1]);
+        assertTrue(misere.getParallelEngine().getScore() >= AlphaBetaEngine.DECISIVE);
+        misere.choose(new int[] {2, 3});
+        assertTrue(misere.getParallelEngine().getScore() <= -AlphaBetaEngine.DECISIVE);
+        assertNull(misere.choose(new int[] {0, 0}));
+        nimesis.close();
+        misere.close();
+    }
+
+    /**
+     * Several misere piles are searched in ALPHA_BETA mode,
+     * and agree with the parallel search
+     */
+    @Test
+    public void MisereSearchTest_t0() {
+        NimRules rules = new NimRules(1, 2, 3).misere();
+        NimPlayer searcher = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA),
+                  parallel = new NimPlayer(rules, NimPlayer.SearchMode.PARALLEL, 2);
+        assertArrayEquals(new int[] {0, 2}, searcher.choose(new int[] {3, 4}));
+        assertArrayEquals(parallel.choose(new int[] {3, 4}), searcher.choose(new int[] {3, 4}));
+        parallel.close();
+        
+        // Misere single-removal Nim: the player to move loses iff
+        // the stone count is odd
+        NimPlayer single = new NimPlayer(NimRules.upTo(1).misere(), NimPlayer.SearchMode.ALPHA_BETA);
+        assertEquals(1, single.choose(new int[] {2, 4})[1]);
+        assertTrue(single.getEngine().getScore() >= AlphaBetaEngine.DECISIVE);
+        assertNull(single.choose(new int[] {0, 0}));
+    }
+
+    /**
+     * MCTS finds the winning move on small piles, reusing
+     * its tree along a game, and on several threads
+     */
+    @Test
+    public void MctsTest_t0() {
+        NimPlayer nimesis = new NimPlayer(NimRules.upTo(3), NimPlayer.SearchMode.MCTS, 1);
+        for (int remaining = 11; remaining >= 1; remaining--) {
+            if (remaining % 4 != 0) {
+                assertEquals(remaining % 4, nimesis.choose(remaining));
+            }
+        }
+        assertEquals(-1, nimesis.choose(0));
+        assertTrue(nimesis.getMctsEngine().getPlayouts() == 0);
+        
+        NimPlayer parallel = new NimPlayer(NimRules.upTo(3), NimPlayer.SearchMode.MCTS, 3);
+        assertEquals(2, parallel.choose(6));
+        assertTrue(parallel.getMctsEngine().getWinRate() > 0.5);
+        assertArrayEquals(new int[] {1, 1}, parallel.choose(new int[] {0, 1}));
+        nimesis.close();
+        parallel.close();
+    }
+
+    /**
+     * Many sessions at once against random opponents, who
+     * start from a lost position, never beat a player
+     * searching with a cache shared across sessions
+     */
+    @Test
+    public void NimSessionManagerTest_t0() {
+        NimRules rules = new NimRules(1, 3, 4);
+        NimPlayer nimesis = new NimPlayer(rules, new SharedTranspositionTable());
+        List<CompletableFuture<NimSessionManager.Result>> results = new ArrayList<>();
+        try (NimSessionManager manager = new NimSessionManager(nimesis)) {
+            for (int i = 0; i < 200; i++) {
+                // Piles of S{1, 3, 4} that are a multiple of 7 are lost
+                int pile = 7 * (i + 1);
+                results.add(manager.start(pile, remaining -> remaining >= 4 && remaining % 2 == 0 ? 4 : 1));
+            }
+            for (CompletableFuture<NimSessionManager.Result> result : results) {
+                assertFalse(result.join().opponentWon);
+                assertTrue(result.join().chooseNanos.length > 0);
+            }
+            CompletableFuture<NimSessionManager.Result> cheat = manager.start(10, remaining -> 2);
+            try {
+                cheat.join();
+                fail("Taking 2 is not allowed");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    /**
+     * Whole engine-vs-engine games, where exact engines never
+     * give away a won pile; kept to one rule set, small piles
+     * and no time-budgeted MCTS to stay well inside the timeout
+     */
+    @Test
+    public void NimTournamentTest_t0() {
+        List<NimTournament.Entrant> entrants = NimTournament.entrants();
+        entrants.removeIf(entrant -> !entrant.exact);
+        NimRules[] grid = {new NimRules(2, 5, 7)};
+        List<NimTournament.Stats> report = NimTournament.run(entrants, grid, new int[] {10, 57});
+        assertEquals(3 * 2, report.size());
+        for (NimTournament.Stats stats : report) {
+            assertTrue(stats.moves > 0);
+            if (stats.entrant.exact) {
+                assertEquals(0, stats.mistakes);
+            }
+        }
+    }
+
+    /**
+     * Two-pile tablebase agrees with the Grundy engine on
+     * every position, and its moves keep winning positions won
+     */
+    @Test
+    public void TablebaseTest_t0() throws IOException {
+        NimRules rules = new NimRules(1, 3, 4);
+        GrundyEngine engine = GrundyEngine.forRules(rules);
+        Path file = Files.createTempFile("nim", ".tb");
+        try {
+            NimTablebaseGenerator.generate(rules, 2, 30, file);
+            NimTablebase tablebase = NimTablebase.open(file);
+            for (int a = 0; a <= 30; a++) {
+                for (int b = 0; b <= 30; b++) {
+                    int[] piles = {a, b};
+                    assertEquals(engine.value(piles) != 0, tablebase.isWin(piles));
+                    if (tablebase.isWin(piles)) {
+                        int[] move = tablebase.bestMove(piles);
+                        piles[move[0]] -= move[1];
+                        assertEquals(0, engine.value(piles));
+                    }
+                }
+            }
+            assertNull(tablebase.bestMove(new int[] {0, 0}));
+            assertEquals(0, tablebase.distance(new int[] {0, 0}));
+            assertEquals(1, tablebase.distance(new int[] {4, 0}));
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    /**
+     * Misere play from a memory-mapped tablebase matches
+     * the alpha-beta search under the same misere rules
+     */
+    @Test
+    public void TablebaseTest_t1() throws IOException {
+        NimRules rules = NimRules.upTo(3).misere();
+        Path file = Files.createTempFile("nim", ".tb");
+        try {
+            NimTablebaseGenerator.generate(rules, 1, 100, file);
+            NimPlayer lookup = new NimPlayer(NimTablebase.open(file)),
+                      searcher = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA);
+            // Under misere play, leaving 1 (mod 4) stones wins
+            assertEquals(3, lookup.choose(4));
+            assertEquals(1, lookup.choose(6));
+            for (int n = 1; n <= 100; n++) {
+                if (n % 4 != 1) {
+                    assertEquals(searcher.choose(n), lookup.choose(n));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Periodicity detection agrees with the Grundy table,
+     * finds the known period of {1, 3, 4}, and answers
+     * astronomically large piles
+     */
+    @Test
+    public void PeriodicSolverTest_t0() {
+        PeriodicSolver solver = PeriodicSolver.forRules(new NimRules(1, 3, 4));
+        assertEquals(0, solver.getPreperiod());
+        assertEquals(7, solver.getPeriod());
+        
+        // GrundyEngine answers from the period too, so both are checked
+        // against a table built from the rules alone
+        for (NimRules rules : new NimRules[] {new NimRules(2, 5, 7), new NimRules(3, 4, 9, 11)}) {
+            GrundyEngine engine = GrundyEngine.forRules(rules);
+            PeriodicSolver periodic = PeriodicSolver.forRules(rules);
+            int[] mex = mexTable(rules, 3000);
+            for (int n = 0; n < mex.length; n++) {
+                assertEquals(mex[n], periodic.value(n));
+                assertEquals(mex[n], engine.grundy(n));
+            }
+        }
+        
+        NimPlayer nimesis = new NimPlayer(3);
+        assertEquals(3, nimesis.choose(1000000000000000003L));
+        assertEquals(1, nimesis.choose(new BigInteger("1000000000000000000000000000001")));
+        assertEquals(1, nimesis.choose(new BigInteger("1000000000000000000000000000000")));
+    }
+    
+    /**
+     * Misere periodicity matches the misere alpha-beta search
+     */
+    @Test
+    public void PeriodicSolverTest_t1() {
+        NimRules rules = new NimRules(1, 3, 4).misere();
+        PeriodicSolver solver = PeriodicSolver.forRules(rules);
+        NimPlayer searcher = new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA);
+        for (int n = 1; n < 300; n++) {
+            assertEquals(solver.isWin(n - solver.chooseMove((long) n)),
+                         solver.isWin(n - searcher.choose(n)));
+        }
+    }
+
 }
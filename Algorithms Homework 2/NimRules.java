@@ -0,0 +1,122 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Rule set of a subtraction game: the numbers of stones that may be removed
+ * from a single pile in one move, and whether the player making the last move
+ * wins (normal play) or loses (misere play). Classic Nim with a removal limit
+ * is the normal-play rule set {1, 2, ..., MAX_REMOVAL}.
+ */
+public class NimRules {
+
+	final int[] removals;
+	final boolean misere;
+
+	/**
+	 * Constructs a rule set from the given allowed removals.
+	 * 
+	 * @param removals The positive numbers of stones a move may remove from a
+	 *                 pile; duplicates are ignored
+	 */
+	public NimRules(int... removals) {
+		TreeSet<Integer> sorted = new TreeSet<>();
+		for (int removal : removals) {
+			if (removal < 1) {
+				throw new IllegalArgumentException("Removals must be positive");
+			}
+			sorted.add(removal);
+		}
+		if (sorted.isEmpty()) {
+			throw new IllegalArgumentException("At least one removal must be allowed");
+		}
+		this.removals = new int[sorted.size()];
+		int i = 0;
+		for (int removal : sorted) {
+			this.removals[i++] = removal;
+		}
+		this.misere = false;
+	}
+
+	private NimRules(int[] removals, boolean misere) {
+		this.removals = removals;
+		this.misere = misere;
+	}
+
+	/**
+	 * @return The same removals under misere play, where the player who makes
+	 *         the last move loses
+	 */
+	public NimRules misere() {
+		return new NimRules(removals, true);
+	}
+
+	/**
+	 * @return Whether the player who makes the last move loses
+	 */
+	public boolean isMisere() {
+		return misere;
+	}
+
+	/**
+	 * @param isMax Whether the max player is to move at a position with no
+	 *              moves left
+	 * @return The minimax score of that position: 1 if max has won, else 0
+	 */
+	int terminalScore(boolean isMax) {
+		return (isMax != misere) ? 0 : 1;
+	}
+
+	/**
+	 * @param maxRemoval The largest number of stones a move may remove
+	 * @return The rule set {1, 2, ..., maxRemoval}
+	 */
+	public static NimRules upTo(int maxRemoval) {
+		int[] removals = new int[maxRemoval];
+		for (int i = 0; i < maxRemoval; i++) {
+			removals[i] = i + 1;
+		}
+		return new NimRules(removals);
+	}
+
+	/**
+	 * @return The allowed removals in ascending order
+	 */
+	public int[] getRemovals() {
+		return removals.clone();
+	}
+
+	/**
+	 * @return The smallest allowed removal; smaller piles admit no move
+	 */
+	public int minRemoval() {
+		return removals[0];
+	}
+
+	/**
+	 * @return The largest allowed removal
+	 */
+	public int maxRemoval() {
+		return removals[removals.length - 1];
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof NimRules
+				? Arrays.equals(removals, ((NimRules) other).removals) && misere == ((NimRules) other).misere
+				: false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(removals) + (misere ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return (misere ? "misere S" : "S") + Arrays.toString(removals);
+	}
+
+}
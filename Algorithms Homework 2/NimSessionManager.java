@@ -0,0 +1,125 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Headless counterpart of NimGame that hosts many games at once. Each session
+ * plays one game of a single pile between a remote opponent, which is asked
+ * for its moves, and the agent, on a thread of its own: a virtual thread where
+ * the JVM has them, so that sessions waiting on their opponents cost next to
+ * nothing, and otherwise a pooled platform thread. Every session asks the
+ * same NimPlayer for the agent's moves, so whatever cache it keeps is shared
+ * by all of them.
+ */
+public class NimSessionManager implements AutoCloseable {
+
+	/**
+	 * How a finished session went.
+	 */
+	public static final class Result {
+		/** Whether the opponent won the game */
+		public final boolean opponentWon;
+		/** Nanoseconds each call to NimPlayer.choose took, in order */
+		public final long[] chooseNanos;
+
+		Result(boolean opponentWon, long[] chooseNanos) {
+			this.opponentWon = opponentWon;
+			this.chooseNanos = chooseNanos;
+		}
+	}
+
+	private final NimPlayer agent;
+	private final NimRules rules;
+	private final ExecutorService sessions;
+
+	/**
+	 * Constructs a NimSessionManager.
+	 *
+	 * @param agent The player making the agent's moves in every session, by
+	 *              whose rules every session is played
+	 */
+	public NimSessionManager(NimPlayer agent) {
+		this.agent = agent;
+		this.rules = agent.getRules();
+		this.sessions = newSessionExecutor();
+	}
+
+	/**
+	 * @return An executor starting a virtual thread per session on JVMs that
+	 *         have them (Java 21 and later), and a growing pool of platform
+	 *         threads on older ones
+	 */
+	private static ExecutorService newSessionExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "nim-session");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Starts a game, which goes on in the background until the pile is empty.
+	 * The opponent moves first, as the player does in NimGame.
+	 *
+	 * @param pile     The number of stones the game starts with
+	 * @param opponent Gives the number of stones the opponent removes, given
+	 *                 the number remaining; may block, e.g. on the network
+	 * @return The outcome of the game once it is over, or an
+	 *         IllegalArgumentException if the opponent made an illegal move
+	 */
+	public CompletableFuture<Result> start(int pile, IntUnaryOperator opponent) {
+		if (pile < 0) {
+			throw new IllegalArgumentException("Pile cannot be negative");
+		}
+		return CompletableFuture.supplyAsync(() -> play(pile, opponent), sessions);
+	}
+
+	/**
+	 * Plays out one session, as NimGame.main does over System.in.
+	 */
+	private Result play(int remaining, IntUnaryOperator opponent) {
+		long[] chooseNanos = new long[16];
+		int agentMoves = 0, taken;
+		boolean opponentsTurn = true;
+
+		while (remaining >= rules.minRemoval()) {
+			if (opponentsTurn) {
+				taken = opponent.applyAsInt(remaining);
+				if (Arrays.binarySearch(rules.removals, taken) < 0 || taken > remaining) {
+					throw new IllegalArgumentException("Improper move: " + taken + " of " + remaining);
+				}
+			} else {
+				long start = System.nanoTime();
+				taken = agent.choose(remaining);
+				if (agentMoves == chooseNanos.length) {
+					chooseNanos = Arrays.copyOf(chooseNanos, agentMoves * 2);
+				}
+				chooseNanos[agentMoves++] = System.nanoTime() - start;
+			}
+			remaining -= taken;
+			opponentsTurn = !opponentsTurn;
+		}
+
+		// Whoever is left without a move has lost, or won under misere play
+		boolean opponentWon = opponentsTurn == rules.misere;
+		return new Result(opponentWon, Arrays.copyOf(chooseNanos, agentMoves));
+	}
+
+	/**
+	 * Stops accepting sessions; those already started play on to the end.
+	 */
+	@Override
+	public void close() {
+		sessions.shutdown();
+	}
+
+}
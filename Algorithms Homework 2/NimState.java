@@ -0,0 +1,131 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+
+/**
+ * GameState of a game of Nim with any number of piles under the given
+ * NimRules. A move removing the j-th allowed removal from pile i is encoded as
+ * i * removals.length + j.
+ *
+ * Nim is impartial, so the score of a position for the side to move does not
+ * depend on which side that is; the side to move is left out of the hash so
+ * that both sides share transposition table entries.
+ */
+public class NimState implements GameState {
+
+	private final NimRules rules;
+	private final int[] piles;
+	private long hash;
+
+	/**
+	 * Constructs the NimState with the given piles.
+	 *
+	 * @param rules The allowed removals of the game being played
+	 * @param piles The number of stones in each pile; copied, not kept
+	 */
+	public NimState(NimRules rules, int[] piles) {
+		this.rules = rules;
+		this.piles = piles.clone();
+		for (int i = 0; i < piles.length; i++) {
+			if (piles[i] < 0) {
+				throw new IllegalArgumentException("Pile " + i + " is negative");
+			}
+			hash ^= zobrist(i, piles[i]);
+		}
+	}
+
+	/**
+	 * Zobrist key of pile i holding the given number of stones. Pile sizes are
+	 * unbounded, so rather than being drawn from a table of random numbers the
+	 * keys are produced by a 64-bit mixing function (SplitMix64's finalizer),
+	 * which gives the same pseudo-random spread.
+	 */
+	static long zobrist(int pile, int stones) {
+		long z = (((long) pile << 32) | stones) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public int generateMoves(int[] moves, int offset) {
+		int[] removals = rules.removals;
+		int count = 0;
+		for (int i = 0; i < piles.length; i++) {
+			for (int j = 0; j < removals.length && removals[j] <= piles[i]; j++) {
+				moves[offset + count++] = i * removals.length + j;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int maxMoves() {
+		return piles.length * rules.removals.length;
+	}
+
+	@Override
+	public void makeMove(int move) {
+		int pile = pile(move);
+		hash ^= zobrist(pile, piles[pile]);
+		piles[pile] -= removal(move);
+		hash ^= zobrist(pile, piles[pile]);
+	}
+
+	@Override
+	public void unmakeMove(int move) {
+		int pile = pile(move);
+		hash ^= zobrist(pile, piles[pile]);
+		piles[pile] += removal(move);
+		hash ^= zobrist(pile, piles[pile]);
+	}
+
+	@Override
+	public long hash() {
+		return hash;
+	}
+
+	@Override
+	public int outcome() {
+		// Under normal play the side left without a move has lost
+		return rules.misere ? 1 : -1;
+	}
+
+	@Override
+	public int evaluate() {
+		return 0;
+	}
+
+	@Override
+	public NimState copy() {
+		return new NimState(rules, piles);
+	}
+
+	/**
+	 * @return The index of the pile the given move removes from
+	 */
+	public int pile(int move) {
+		return move / rules.removals.length;
+	}
+
+	/**
+	 * @return The number of stones the given move removes
+	 */
+	public int removal(int move) {
+		return rules.removals[move % rules.removals.length];
+	}
+
+	/**
+	 * @return A copy of the current piles
+	 */
+	public int[] getPiles() {
+		return piles.clone();
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(piles);
+	}
+
+}
@@ -0,0 +1,179 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped endgame tablebase for a subtraction game with a
+ * fixed number of piles, produced offline by NimTablebaseGenerator. Every
+ * position up to the size limit has one bit-packed entry holding whether the
+ * player to move wins, the number of moves until the game ends under best
+ * play, and the best move itself, so a move is chosen with a single lookup.
+ *
+ * File layout (all integers big-endian):
+ * <pre>
+ * int magic, int version, int misere (0 or 1), int pileCount, int maxPile,
+ * int removalCount, removalCount x int removal, int entryBits,
+ * long entryCount, padding to a multiple of 8,
+ * ceil(entryCount * entryBits / 64) x long, entries packed low bit first
+ * </pre>
+ * Entry bits, low to high: win (1), distance, pile index, removal index.
+ * Position (p0, p1, ...) has index p0 + p1 * (maxPile + 1) + ...
+ */
+public class NimTablebase {
+
+	static final int MAGIC = 0x4E4D5442, VERSION = 1;
+
+	private final MappedByteBuffer data;
+	private final NimRules rules;
+	private final int pileCount, maxPile, entryBits, distanceBits, pileBits, removalBits;
+	private final long entryCount, dataStart;
+
+	private NimTablebase(MappedByteBuffer data) throws IOException {
+		this.data = data;
+		if (data.getInt(0) != MAGIC) {
+			throw new IOException("Not a Nim tablebase");
+		}
+		if (data.getInt(4) != VERSION) {
+			throw new IOException("Unsupported Nim tablebase version " + data.getInt(4));
+		}
+		boolean misere = data.getInt(8) != 0;
+		pileCount = data.getInt(12);
+		maxPile = data.getInt(16);
+		int[] removals = new int[data.getInt(20)];
+		for (int i = 0; i < removals.length; i++) {
+			removals[i] = data.getInt(24 + 4 * i);
+		}
+		NimRules normal = new NimRules(removals);
+		rules = misere ? normal.misere() : normal;
+		int offset = 24 + 4 * removals.length;
+		entryBits = data.getInt(offset);
+		entryCount = data.getLong(offset + 4);
+		dataStart = (offset + 12 + 7) & ~7L;
+		pileBits = bitsFor(pileCount - 1);
+		removalBits = bitsFor(removals.length - 1);
+		distanceBits = entryBits - 1 - pileBits - removalBits;
+		if (dataStart + ((entryCount * entryBits + 63) / 64) * 8 != data.capacity()) {
+			throw new IOException("Nim tablebase truncated");
+		}
+	}
+
+	/**
+	 * Memory-maps a tablebase file; entries are only paged in as they are
+	 * looked up.
+	 * 
+	 * @param file Path of a file produced by NimTablebaseGenerator
+	 * @return The opened NimTablebase
+	 * @throws IOException If the file cannot be read or is not a tablebase
+	 */
+	public static NimTablebase open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Nim tablebase larger than 2 GB");
+			}
+			// The mapping stays valid after the channel is closed
+			return new NimTablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return The number of bits needed to store every value in [0, max]
+	 */
+	static int bitsFor(long max) {
+		return 64 - Long.numberOfLeadingZeros(max);
+	}
+
+	// -----------------------------------------------
+	// Lookups
+	// -----------------------------------------------
+
+	/**
+	 * @return The packed entry of the given position
+	 */
+	private long entry(int[] piles) {
+		if (piles.length != pileCount) {
+			throw new IllegalArgumentException("Tablebase covers exactly " + pileCount + " piles");
+		}
+		long index = 0;
+		for (int i = piles.length - 1; i >= 0; i--) {
+			if (piles[i] < 0 || piles[i] > maxPile) {
+				throw new IllegalArgumentException("Tablebase covers piles up to " + maxPile);
+			}
+			index = index * (maxPile + 1) + piles[i];
+		}
+		long bit = index * entryBits;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		long value = data.getLong((int) dataStart + word * 8) >>> shift;
+		// Entries may straddle two words
+		if (shift + entryBits > 64) {
+			value |= data.getLong((int) dataStart + (word + 1) * 8) << (64 - shift);
+		}
+		return entryBits == 64 ? value : value & ((1L << entryBits) - 1);
+	}
+
+	/**
+	 * @param piles The number of stones in each pile
+	 * @return Whether the player to move wins with best play
+	 */
+	public boolean isWin(int[] piles) {
+		return (entry(piles) & 1) != 0;
+	}
+
+	/**
+	 * @param piles The number of stones in each pile
+	 * @return The number of moves until the game ends when the winner hurries
+	 *         and the loser stalls
+	 */
+	public int distance(int[] piles) {
+		return (int) ((entry(piles) >>> 1) & ((1L << distanceBits) - 1));
+	}
+
+	/**
+	 * @param piles The number of stones in each pile
+	 * @return The best move as {pile index, stones removed}: the quickest win,
+	 *         or the longest resistance from a lost position; null if no move
+	 *         is possible
+	 */
+	public int[] bestMove(int[] piles) {
+		long entry = entry(piles);
+		if (((entry >>> 1) & ((1L << distanceBits) - 1)) == 0) {
+			return null;
+		}
+		int pile = (int) ((entry >>> (1 + distanceBits)) & ((1L << pileBits) - 1));
+		int removal = (int) ((entry >>> (1 + distanceBits + pileBits)) & ((1L << removalBits) - 1));
+		return new int[] { pile, rules.removals[removal] };
+	}
+
+	/**
+	 * @return The rule set the tablebase was generated for
+	 */
+	public NimRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return The number of piles of every position in the tablebase
+	 */
+	public int getPileCount() {
+		return pileCount;
+	}
+
+	/**
+	 * @return The largest pile size covered by the tablebase
+	 */
+	public int getMaxPile() {
+		return maxPile;
+	}
+
+	/**
+	 * @return The number of positions in the tablebase
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+}
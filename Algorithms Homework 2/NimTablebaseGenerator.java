@@ -0,0 +1,155 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline generator of NimTablebase files by retrograde analysis. Every move
+ * lowers one pile, and so lowers the position's index, so walking the
+ * positions in index order visits every successor before its predecessors and
+ * each position is solved from already-solved entries in a single pass.
+ */
+public class NimTablebaseGenerator {
+
+	/**
+	 * Usage: NimTablebaseGenerator out-file pile-count max-pile normal|misere
+	 * removal...
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 5) {
+			System.out.println("Usage: NimTablebaseGenerator <out-file> <pile-count> <max-pile> "
+					+ "<normal|misere> <removal>...");
+			return;
+		}
+		int[] removals = new int[args.length - 4];
+		for (int i = 4; i < args.length; i++) {
+			removals[i - 4] = Integer.parseInt(args[i]);
+		}
+		NimRules rules = new NimRules(removals);
+		if (args[3].equals("misere")) {
+			rules = rules.misere();
+		}
+		long start = System.nanoTime();
+		generate(rules, Integer.parseInt(args[1]), Integer.parseInt(args[2]), Paths.get(args[0]));
+		System.out.println("Wrote " + args[0] + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * Solves every position of the given rule set with the given number of
+	 * piles, each of at most maxPile stones, and writes the tablebase file.
+	 * 
+	 * @param rules     The rule set to solve, normal or misere
+	 * @param pileCount The number of piles in every position
+	 * @param maxPile   The largest pile size to cover
+	 * @param file      Path of the tablebase file to create or overwrite
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void generate(NimRules rules, int pileCount, int maxPile, Path file)
+			throws IOException {
+		if (pileCount < 1 || maxPile < 0) {
+			throw new IllegalArgumentException("Need at least one pile and a non-negative size limit");
+		}
+		long entryCount = 1;
+		long[] stride = new long[pileCount];
+		for (int i = 0; i < pileCount; i++) {
+			stride[i] = entryCount;
+			entryCount = Math.multiplyExact(entryCount, maxPile + 1);
+		}
+		// A game can't last longer than one move per smallest removal
+		int distanceBits = NimTablebase.bitsFor((long) pileCount * maxPile / rules.minRemoval()),
+			pileBits = NimTablebase.bitsFor(pileCount - 1),
+			removalBits = NimTablebase.bitsFor(rules.removals.length - 1),
+			entryBits = 1 + distanceBits + pileBits + removalBits;
+		long words = (entryCount * entryBits + 63) / 64;
+		if (entryBits > 64 || words * 8 > Integer.MAX_VALUE - 4096) {
+			throw new IllegalArgumentException("Tablebase would exceed 2 GB");
+		}
+		long[] packed = new long[(int) words];
+		long distanceMask = (1L << distanceBits) - 1;
+
+		int[] piles = new int[pileCount];
+		for (long index = 0; index < entryCount; index++) {
+			boolean win = false, anyMove = false;
+			int bestDistance = 0, bestPile = 0, bestRemoval = 0;
+			for (int i = 0; i < pileCount; i++) {
+				for (int r = 0; r < rules.removals.length && rules.removals[r] <= piles[i]; r++) {
+					long child = get(packed, index - rules.removals[r] * stride[i], entryBits);
+					boolean childWin = (child & 1) != 0;
+					int childDistance = (int) ((child >>> 1) & distanceMask);
+					if (!childWin) {
+						// Move into a lost position: win, and as fast as possible
+						if (!win || childDistance + 1 < bestDistance) {
+							win = true;
+							bestDistance = childDistance + 1;
+							bestPile = i;
+							bestRemoval = r;
+						}
+					} else if (!win && (!anyMove || childDistance + 1 > bestDistance)) {
+						// Every move so far loses: stall for as long as possible
+						bestDistance = childDistance + 1;
+						bestPile = i;
+						bestRemoval = r;
+					}
+					anyMove = true;
+				}
+			}
+			if (!anyMove) {
+				// No moves left: under misere play the opponent just lost
+				win = rules.misere;
+			}
+			set(packed, index, entryBits, (win ? 1L : 0L) | (long) bestDistance << 1
+					| (long) bestPile << (1 + distanceBits) | (long) bestRemoval << (1 + distanceBits + pileBits));
+
+			// Advance the mixed-radix pile counter to the next index
+			for (int i = 0; i < pileCount && ++piles[i] > maxPile; i++) {
+				piles[i] = 0;
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(NimTablebase.MAGIC);
+			out.writeInt(NimTablebase.VERSION);
+			out.writeInt(rules.misere ? 1 : 0);
+			out.writeInt(pileCount);
+			out.writeInt(maxPile);
+			out.writeInt(rules.removals.length);
+			for (int removal : rules.removals) {
+				out.writeInt(removal);
+			}
+			out.writeInt(entryBits);
+			out.writeLong(entryCount);
+			for (int pad = out.size(); pad % 8 != 0; pad++) {
+				out.writeByte(0);
+			}
+			for (long word : packed) {
+				out.writeLong(word);
+			}
+		}
+	}
+
+	private static long get(long[] packed, long index, int entryBits) {
+		long bit = index * entryBits;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		long value = packed[word] >>> shift;
+		if (shift + entryBits > 64) {
+			value |= packed[word + 1] << (64 - shift);
+		}
+		return entryBits == 64 ? value : value & ((1L << entryBits) - 1);
+	}
+
+	private static void set(long[] packed, long index, int entryBits, long entry) {
+		long bit = index * entryBits;
+		int word = (int) (bit >>> 6), shift = (int) (bit & 63);
+		packed[word] |= entry << shift;
+		if (shift + entryBits > 64) {
+			packed[word + 1] |= entry >>> (64 - shift);
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Headless engine-vs-engine tournament. Every pair of entrants, each in turn
+ * moving first, plays one game of NimGame's turn loop per rule set and pile
+ * size of the grid. Every move is checked against PeriodicSolver, which knows
+ * whether any single pile is won: a move from a won pile that leaves the
+ * opponent a won pile is a mistake, which no exact entrant may make. The
+ * report gives, per entrant, rule set and pile size, the mistakes, the mean
+ * time per move, the positions searched per move and the transposition table
+ * hit rate, so that changes to the engines' performance show up between runs.
+ *
+ * Each entrant keeps one player per rule set across all of its games, as a
+ * server would, so later games profit from the tables of earlier ones; the
+ * players are closed once the rule set's games are over.
+ *
+ * Usage: java nim.NimTournament [report.csv]
+ */
+public class NimTournament {
+
+	private static final NimRules[] RULES = { NimRules.upTo(3), new NimRules(1, 3, 4), new NimRules(2, 5, 7),
+			NimRules.upTo(3).misere(), new NimRules(1, 3, 4).misere() };
+	private static final int[] PILES = { 10, 100, 1000, 10000 };
+
+	/**
+	 * A player taking part in the tournament.
+	 */
+	static final class Entrant {
+		final String name;
+		// Whether every move must be optimal
+		final boolean exact;
+		// Largest pile the entrant plays from, since sampling engines are slow
+		final int maxPile;
+		final Function<NimRules, NimPlayer> factory;
+
+		Entrant(String name, boolean exact, int maxPile, Function<NimRules, NimPlayer> factory) {
+			this.name = name;
+			this.exact = exact;
+			this.maxPile = maxPile;
+			this.factory = factory;
+		}
+	}
+
+	/**
+	 * What one entrant did in every game of one rule set and pile size; a game
+	 * against itself counts for both sides.
+	 */
+	static final class Stats {
+		final Entrant entrant;
+		final NimRules rules;
+		final int pile;
+		int games, wins, moves, mistakes;
+		long nanos, nodes, probes, hits;
+
+		Stats(Entrant entrant, NimRules rules, int pile) {
+			this.entrant = entrant;
+			this.rules = rules;
+			this.pile = pile;
+		}
+
+		/**
+		 * @return The fraction of table lookups that found an entry, or -1 if
+		 *         the entrant keeps no table of its own
+		 */
+		double hitRate() {
+			return probes == 0 ? -1 : (double) hits / probes;
+		}
+	}
+
+	static List<Entrant> entrants() {
+		List<Entrant> entrants = new ArrayList<>();
+		entrants.add(new Entrant("grundy", true, Integer.MAX_VALUE,
+				rules -> rules.misere ? null : new NimPlayer(rules, NimPlayer.SearchMode.GRUNDY)));
+		entrants.add(new Entrant("alpha-beta", true, Integer.MAX_VALUE,
+				rules -> new NimPlayer(rules, NimPlayer.SearchMode.ALPHA_BETA)));
+		entrants.add(new Entrant("lazy-smp x2", true, Integer.MAX_VALUE,
+				rules -> new NimPlayer(rules, NimPlayer.SearchMode.PARALLEL, 2)));
+		entrants.add(new Entrant("mcts", false, 100, rules -> {
+			NimPlayer player = new NimPlayer(rules, NimPlayer.SearchMode.MCTS, 1);
+			player.setTimeBudget(2);
+			return player;
+		}));
+		return entrants;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<Stats> report = run(entrants(), RULES, PILES);
+
+		System.out.printf("%-12s %-18s %6s %6s %8s %8s %10s %12s %8s%n", "entrant", "rules", "pile", "games",
+				"moves", "mistakes", "us/move", "nodes/move", "hits");
+		boolean failed = false;
+		for (Stats stats : report) {
+			System.out.printf("%-12s %-18s %6d %6d %8d %8d %10.1f %12.1f %8s%n", stats.entrant.name, stats.rules,
+					stats.pile, stats.games, stats.moves, stats.mistakes, stats.nanos / 1000.0 / stats.moves,
+					(double) stats.nodes / stats.moves,
+					stats.hitRate() < 0 ? "-" : String.format("%.1f%%", 100 * stats.hitRate()));
+			failed |= stats.entrant.exact && stats.mistakes > 0;
+		}
+
+		if (args.length > 0) {
+			try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(Paths.get(args[0])))) {
+				csv.println("entrant,rules,pile,games,wins,moves,mistakes,nanos,nodes,probes,hits");
+				for (Stats stats : report) {
+					csv.printf("%s,\"%s\",%d,%d,%d,%d,%d,%d,%d,%d,%d%n", stats.entrant.name, stats.rules,
+							stats.pile, stats.games, stats.wins, stats.moves, stats.mistakes, stats.nanos,
+							stats.nodes, stats.probes, stats.hits);
+				}
+			}
+		}
+		if (failed) {
+			System.out.println("[X] An exact entrant made a mistake");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Plays every game of the tournament.
+	 *
+	 * @return One Stats per entrant, rule set and pile size it played
+	 */
+	static List<Stats> run(List<Entrant> entrants, NimRules[] grid, int[] piles) {
+		List<Stats> report = new ArrayList<>();
+		for (NimRules rules : grid) {
+			PeriodicSolver reference = PeriodicSolver.forRules(rules);
+			NimPlayer[] players = new NimPlayer[entrants.size()];
+			try {
+				for (int i = 0; i < players.length; i++) {
+					players[i] = entrants.get(i).factory.apply(rules);
+				}
+				for (int pile : piles) {
+					Stats[] stats = new Stats[players.length];
+					for (int i = 0; i < players.length; i++) {
+						if (players[i] != null && pile <= entrants.get(i).maxPile) {
+							stats[i] = new Stats(entrants.get(i), rules, pile);
+							report.add(stats[i]);
+						}
+					}
+					for (int first = 0; first < players.length; first++) {
+						for (int second = 0; second < players.length; second++) {
+							if (stats[first] != null && stats[second] != null) {
+								play(rules, pile, reference, players[first], stats[first], players[second], stats[second]);
+							}
+						}
+					}
+				}
+			} finally {
+				for (NimPlayer player : players) {
+					if (player != null) {
+						player.close();
+					}
+				}
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Plays one game, as NimGame.main does between a person and its agent.
+	 */
+	private static void play(NimRules rules, int remaining, PeriodicSolver reference, NimPlayer first,
+			Stats firstStats, NimPlayer second, Stats secondStats) {
+		boolean firstsTurn = true;
+		firstStats.games++;
+		secondStats.games++;
+
+		// Continue to pull stones as long as a removal is possible
+		while (remaining >= rules.minRemoval()) {
+			NimPlayer player = firstsTurn ? first : second;
+			Stats stats = firstsTurn ? firstStats : secondStats;
+			TranspositionTable table = player.getTranspositionTable();
+			long probes = table == null ? 0 : table.getProbes(), hits = table == null ? 0 : table.getHits();
+
+			long start = System.nanoTime();
+			int taken = player.choose(remaining);
+			stats.nanos += System.nanoTime() - start;
+			stats.moves++;
+			stats.nodes += nodes(player);
+			if (table != null) {
+				stats.probes += table.getProbes() - probes;
+				stats.hits += table.getHits() - hits;
+			}
+
+			if (taken < 0 || taken > remaining || Arrays.binarySearch(rules.removals, taken) < 0) {
+				throw new IllegalStateException(stats.entrant.name + " took " + taken + " of " + remaining);
+			}
+			if (reference.isWin(remaining) && reference.isWin(remaining - taken)) {
+				stats.mistakes++;
+			}
+			remaining -= taken;
+			firstsTurn = !firstsTurn;
+		}
+
+		// Whoever is left without a move has lost, or won under misere play
+		(firstsTurn != rules.misere ? secondStats : firstStats).wins++;
+	}
+
+	/**
+	 * @return The positions searched, or playouts run, by the player's last
+	 *         move; 0 for players answering by lookup
+	 */
+	private static long nodes(NimPlayer player) {
+		if (player.getEngine() != null) {
+			return player.getEngine().getNodes();
+		}
+		if (player.getParallelEngine() != null) {
+			return player.getParallelEngine().getNodes();
+		}
+		if (player.getMctsEngine() != null) {
+			return player.getMctsEngine().getPlayouts();
+		}
+		return 0;
+	}
+
+}
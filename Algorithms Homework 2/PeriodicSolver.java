@@ -0,0 +1,203 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Constant-time solver for single piles of any size. The value of a pile in a
+ * subtraction game (its Grundy number under normal play, or whether the player
+ * to move wins under misere play) depends only on the values of the
+ * maxRemoval piles just below it, so the sequence of values must eventually
+ * repeat. The solver computes the sequence until Brent's cycle detection finds
+ * the preperiod and period, after which any pile size, even one given as a
+ * long or BigInteger, is answered by reducing it into the first period.
+ */
+public class PeriodicSolver {
+
+	private static final Map<NimRules, PeriodicSolver> SOLVERS = new ConcurrentHashMap<>();
+
+	private final NimRules rules;
+	private final int[] values;
+	private final int preperiod, period;
+
+	private PeriodicSolver(NimRules rules) {
+		this.rules = rules;
+		int window = rules.maxRemoval();
+		int[] sequence = new int[Math.max(64, 4 * window)];
+		int length = 0;
+
+		// Brent: find the period as the distance between two equal windows
+		int power = 1, lambda = 1, tortoise = 0, hare = 1;
+		while (true) {
+			while (hare + window > length) {
+				sequence = grow(sequence, length, hare + window);
+				length = hare + window;
+			}
+			if (windowsEqual(sequence, tortoise, hare, window)) {
+				break;
+			}
+			if (power == lambda) {
+				tortoise = hare;
+				power *= 2;
+				lambda = 0;
+			}
+			hare++;
+			lambda++;
+		}
+		// Then the preperiod as the first window repeated one period later
+		int mu = 0;
+		while (!windowsEqual(sequence, mu, mu + lambda, window)) {
+			mu++;
+		}
+		this.preperiod = mu;
+		this.period = lambda;
+		this.values = Arrays.copyOf(sequence, mu + lambda);
+	}
+
+	/**
+	 * @param rules The rule set to solve, normal or misere
+	 * @return The shared PeriodicSolver for the given rule set
+	 */
+	public static PeriodicSolver forRules(NimRules rules) {
+		return SOLVERS.computeIfAbsent(rules, PeriodicSolver::new);
+	}
+
+	/**
+	 * Extends the computed prefix of the value sequence to the given length.
+	 */
+	private int[] grow(int[] sequence, int from, int to) {
+		if (to > sequence.length) {
+			sequence = Arrays.copyOf(sequence, Math.max(to, sequence.length * 2));
+		}
+		boolean[] seen = new boolean[rules.removals.length + 1];
+		for (int n = from; n < to; n++) {
+			if (rules.misere) {
+				// Win iff some move reaches a lost pile; with no move at all, win
+				int win = 1;
+				for (int removal : rules.removals) {
+					if (removal > n) {
+						break;
+					}
+					win = 0;
+					if (sequence[n - removal] == 0) {
+						win = 1;
+						break;
+					}
+				}
+				sequence[n] = win;
+			} else {
+				Arrays.fill(seen, false);
+				for (int removal : rules.removals) {
+					if (removal > n) {
+						break;
+					}
+					seen[sequence[n - removal]] = true;
+				}
+				int mex = 0;
+				while (seen[mex]) {
+					mex++;
+				}
+				sequence[n] = mex;
+			}
+		}
+		return sequence;
+	}
+
+	private static boolean windowsEqual(int[] sequence, int a, int b, int window) {
+		for (int i = 0; i < window; i++) {
+			if (sequence[a + i] != sequence[b + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// -----------------------------------------------
+	// Queries
+	// -----------------------------------------------
+
+	/**
+	 * @param size The number of stones in the pile
+	 * @return The Grundy number of the pile under normal play, or 1 / 0 for a
+	 *         won / lost pile under misere play
+	 */
+	public int value(long size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Pile sizes can't be negative");
+		}
+		return size < preperiod
+				? values[(int) size]
+				: values[preperiod + (int) ((size - preperiod) % period)];
+	}
+
+	/**
+	 * @see #value(long)
+	 */
+	public int value(BigInteger size) {
+		if (size.bitLength() < 63) {
+			return value(size.longValue());
+		}
+		return values[preperiod + size.subtract(BigInteger.valueOf(preperiod))
+				.mod(BigInteger.valueOf(period)).intValue()];
+	}
+
+	/**
+	 * @param size The number of stones in the pile
+	 * @return Whether the player to move wins a single pile of that size
+	 */
+	public boolean isWin(long size) {
+		return value(size) != 0;
+	}
+
+	/**
+	 * Picks the move for a single pile: one into a lost pile if there is one,
+	 * else the smallest removal.
+	 * 
+	 * @param size The number of stones in the pile
+	 * @return The number of stones to remove, or -1 if no move is possible
+	 */
+	public int chooseMove(long size) {
+		if (size < rules.minRemoval()) {
+			return -1;
+		}
+		if (isWin(size)) {
+			for (int removal : rules.removals) {
+				if (removal <= size && value(size - removal) == 0) {
+					return removal;
+				}
+			}
+		}
+		return rules.minRemoval();
+	}
+
+	/**
+	 * @see #chooseMove(long)
+	 */
+	public int chooseMove(BigInteger size) {
+		if (size.bitLength() < 63) {
+			return chooseMove(size.longValue());
+		}
+		// Far beyond the preperiod, only the residue within the period matters
+		long residue = preperiod + size.subtract(BigInteger.valueOf(preperiod))
+				.mod(BigInteger.valueOf(period)).longValue();
+		return chooseMove(residue + (long) period * (1 + (rules.maxRemoval() + preperiod) / period));
+	}
+
+	/**
+	 * @return The number of pile sizes before the values start repeating
+	 */
+	public int getPreperiod() {
+		return preperiod;
+	}
+
+	/**
+	 * @return The length of the repeating block of values
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+}
@@ -0,0 +1,143 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transposition table shared by several threads searching at once, without
+ * any locks. Each entry is packed into a single 64-bit word, written and read
+ * with one atomic access, so a thread never sees half of one entry and half
+ * of another. Next to it the table keeps the key XORed with that word; an
+ * entry whose two words were written by different threads no longer XORs
+ * back to the key being looked up and is simply treated as absent (Hyatt and
+ * Mann's lockless hashing).
+ *
+ * Packing costs some range compared to TranspositionTable: depths are kept in
+ * 15 bits, saturating below the largest value, which stands for a proven
+ * result; moves are kept in 15 bits, and larger moves are stored as
+ * GameState.NO_MOVE. Either only ever makes the table less useful, never
+ * wrong. Like TranspositionTable, a new entry always replaces whatever
+ * occupied its slot.
+ */
+public class SharedTranspositionTable {
+
+	// Layout of an entry: score in bits 0-31, depth in 32-46, bound in 47-48,
+	// move + 1 in 49-63
+	private static final int DEPTH_SHIFT = 32, BOUND_SHIFT = 47, MOVE_SHIFT = 49;
+	private static final int DEPTH_MASK = 0x7FFF, BOUND_MASK = 0x3, MOVE_MASK = 0x7FFF;
+	private static final int PROVEN = DEPTH_MASK;
+
+	private final int mask;
+	// Two words per slot: the key XORed with the entry, then the entry
+	private final AtomicLongArray words;
+
+	/**
+	 * Constructs an empty SharedTranspositionTable with the default number of
+	 * slots.
+	 */
+	public SharedTranspositionTable() {
+		this(TranspositionTable.DEFAULT_SIZE_BITS);
+	}
+
+	/**
+	 * Constructs an empty SharedTranspositionTable.
+	 *
+	 * @param sizeBits The table holds 2^sizeBits entries
+	 */
+	public SharedTranspositionTable(int sizeBits) {
+		if (sizeBits < 0 || sizeBits > 29) {
+			throw new IllegalArgumentException("Table size must be between 2^0 and 2^29");
+		}
+		mask = (1 << sizeBits) - 1;
+		words = new AtomicLongArray(2 << sizeBits);
+	}
+
+	private int slot(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	/**
+	 * @param key Hash of the position
+	 * @return The packed entry of the position, or 0 if absent
+	 */
+	public long probe(long key) {
+		int index = slot(key) << 1;
+		long entry = words.getOpaque(index + 1);
+		if ((words.getOpaque(index) ^ entry) != key) {
+			return 0;
+		}
+		return entry;
+	}
+
+	/**
+	 * Records the score of a position, replacing whatever entry shared its
+	 * slot.
+	 *
+	 * @param key   Hash of the position
+	 * @param depth Depth the position was searched to, Integer.MAX_VALUE for
+	 *              a proven result
+	 * @param score The score the search returned
+	 * @param bound TranspositionTable.EXACT, LOWER or UPPER
+	 * @param move  The best move found, or GameState.NO_MOVE
+	 */
+	public void store(long key, int depth, int score, byte bound, int move) {
+		long packedDepth = depth == Integer.MAX_VALUE ? PROVEN : Math.min(depth, PROVEN - 1);
+		long packedMove = move >= 0 && move < MOVE_MASK ? move + 1 : 0;
+		long entry = (score & 0xFFFFFFFFL) | packedDepth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| packedMove << MOVE_SHIFT;
+		int index = slot(key) << 1;
+		words.setOpaque(index, key ^ entry);
+		words.setOpaque(index + 1, entry);
+	}
+
+	// -----------------------------------------------
+	// Entries
+	// -----------------------------------------------
+
+	/**
+	 * @return The bound type of the given entry, TranspositionTable.NONE for 0
+	 */
+	public static byte bound(long entry) {
+		return (byte) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+
+	/**
+	 * @return The score of the given entry
+	 */
+	public static int score(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * @return The depth the given entry was searched to, Integer.MAX_VALUE if
+	 *         its result is proven
+	 */
+	public static int depth(long entry) {
+		int depth = (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+		return depth == PROVEN ? Integer.MAX_VALUE : depth;
+	}
+
+	/**
+	 * @return The best move of the given entry, or GameState.NO_MOVE
+	 */
+	public static int move(long entry) {
+		return (int) (entry >>> MOVE_SHIFT) - 1;
+	}
+
+	/**
+	 * Drops every entry. Not safe while another thread is searching.
+	 */
+	public void clear() {
+		for (int i = 0; i < words.length(); i++) {
+			words.setOpaque(i, 0);
+		}
+	}
+
+	/**
+	 * @return The number of entries the table can hold
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+}
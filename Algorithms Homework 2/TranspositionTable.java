@@ -0,0 +1,170 @@
+// Jigar Swaminarayan
+package nim;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table for game-tree search, keyed by the 64-bit hash of a
+ * position. Each entry stores a score together with what kind of bound it
+ * is, so that a score produced under an alpha-beta cutoff is never mistaken
+ * for an exact one, the depth it was searched to, and the best move found
+ * there, which is tried first when the position is searched again.
+ *
+ * The table has a fixed number of slots and a new entry always replaces
+ * whatever occupied its slot; the full key is stored alongside, so a lookup
+ * never returns another position's entry. Entries depend only on the
+ * position, so one table stays valid across every move of a game and across
+ * games with the same rules.
+ */
+public class TranspositionTable {
+
+	/** No entry stored for the position */
+	public static final byte NONE = 0;
+	/** The stored score is the exact score */
+	public static final byte EXACT = 1;
+	/** The true score is at least the stored score (search failed high) */
+	public static final byte LOWER = 2;
+	/** The true score is at most the stored score (search failed low) */
+	public static final byte UPPER = 3;
+
+	/**
+	 * Default number of slots, as a power of two.
+	 */
+	public static final int DEFAULT_SIZE_BITS = 18;
+
+	private final int mask;
+	private final long[] keys;
+	private final int[] scores, depths, moves;
+	private final byte[] bounds;
+	private long probes, hits;
+
+	/**
+	 * Constructs an empty TranspositionTable with the default number of slots.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_SIZE_BITS);
+	}
+
+	/**
+	 * Constructs an empty TranspositionTable.
+	 *
+	 * @param sizeBits The table holds 2^sizeBits entries
+	 */
+	public TranspositionTable(int sizeBits) {
+		if (sizeBits < 0 || sizeBits > 30) {
+			throw new IllegalArgumentException("Table size must be between 2^0 and 2^30");
+		}
+		int size = 1 << sizeBits;
+		mask = size - 1;
+		keys = new long[size];
+		scores = new int[size];
+		depths = new int[size];
+		moves = new int[size];
+		bounds = new byte[size];
+	}
+
+	private int slot(long key) {
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	/**
+	 * @param key Hash of the position
+	 * @return The slot holding the position's entry, or -1 if absent
+	 */
+	public int probe(long key) {
+		probes++;
+		int slot = slot(key);
+		if (bounds[slot] == NONE || keys[slot] != key) {
+			return -1;
+		}
+		hits++;
+		return slot;
+	}
+
+	/**
+	 * @return The bound type of the entry in the given slot
+	 */
+	public byte bound(int slot) {
+		return bounds[slot];
+	}
+
+	/**
+	 * @return The score of the entry in the given slot
+	 */
+	public int score(int slot) {
+		return scores[slot];
+	}
+
+	/**
+	 * @return The depth the entry in the given slot was searched to
+	 */
+	public int depth(int slot) {
+		return depths[slot];
+	}
+
+	/**
+	 * @return The best move of the entry in the given slot, or
+	 *         GameState.NO_MOVE
+	 */
+	public int move(int slot) {
+		return moves[slot];
+	}
+
+	/**
+	 * Records the score of a position, replacing whatever entry shared its
+	 * slot.
+	 *
+	 * @param key   Hash of the position
+	 * @param depth Depth the position was searched to
+	 * @param score The score the search returned
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move  The best move found, or GameState.NO_MOVE
+	 */
+	public void store(long key, int depth, int score, byte bound, int move) {
+		int slot = slot(key);
+		keys[slot] = key;
+		depths[slot] = depth;
+		scores[slot] = score;
+		bounds[slot] = bound;
+		moves[slot] = move;
+	}
+
+	/**
+	 * Classifies the score of a position searched with the window (alpha, beta).
+	 *
+	 * @return EXACT, LOWER or UPPER depending on where the score fell
+	 */
+	public static byte boundOf(int score, int alpha, int beta) {
+		return score <= alpha ? UPPER : score >= beta ? LOWER : EXACT;
+	}
+
+	/**
+	 * Drops every entry, e.g. before a benchmark run.
+	 */
+	public void clear() {
+		Arrays.fill(bounds, NONE);
+		probes = hits = 0;
+	}
+
+	/**
+	 * @return The number of entries the table can hold
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return The number of lookups made so far
+	 */
+	public long getProbes() {
+		return probes;
+	}
+
+	/**
+	 * @return The number of lookups that found an entry
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+}
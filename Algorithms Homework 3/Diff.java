@@ -0,0 +1,332 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Myers' O((m + n) D) difference algorithm, for sequences that differ in few
+ * places, where the LCS table would be almost all wasted work. A D-path is a
+ * path through the edit graph with D insertions or deletions, and the
+ * furthest a D-path reaches along each diagonal follows greedily from the
+ * (D - 1)-paths, running down every snake of matches it meets. Searching from
+ * both corners at once, the paths first meet at the middle snake of an
+ * optimal path; the sequences are split at its end and both halves diffed
+ * the same way, so only O(m + n) memory is ever needed. Common prefixes and
+ * suffixes are stripped off first, the middle snake among them, which is most
+ * of the work for near-identical inputs.
+ *
+ * Tokens are compared by equals, after being numbered once, so the sequences
+ * may hold lines, words or characters alike.
+ *
+ * @param <T> The type of the tokens
+ */
+public final class Diff<T> {
+
+	/**
+	 * What a run of an edit script does.
+	 */
+	public enum Op {
+		KEEP, DELETE, INSERT
+	}
+
+	/**
+	 * A run of tokens kept, deleted from the first sequence or inserted from
+	 * the second.
+	 */
+	public static final class Edit {
+		public final Op op;
+		/** Where the run starts in the first sequence, or would for an insert */
+		public final int aStart;
+		/** Where the run starts in the second sequence, or would for a delete */
+		public final int bStart;
+		public final int length;
+
+		Edit(Op op, int aStart, int bStart, int length) {
+			this.op = op;
+			this.aStart = aStart;
+			this.bStart = bStart;
+			this.length = length;
+		}
+
+		@Override
+		public String toString() {
+			return op + " " + length + " at " + aStart + "/" + bStart;
+		}
+	}
+
+	private final List<? extends T> a, b;
+	private final List<Edit> edits;
+	private final int distance;
+
+	private Diff(List<? extends T> a, List<? extends T> b, List<Edit> edits, int distance) {
+		this.a = a;
+		this.b = b;
+		this.edits = edits;
+		this.distance = distance;
+	}
+
+	/**
+	 * Diffs two sequences of tokens.
+	 *
+	 * @param a The first sequence, which the edit script starts from
+	 * @param b The second sequence, which the edit script ends at
+	 * @return The shortest edit script from a to b
+	 */
+	public static <T> Diff<T> of(List<? extends T> a, List<? extends T> b) {
+		Map<T, Integer> ids = new HashMap<>();
+		int[] x = new int[a.size()], y = new int[b.size()];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = ids.computeIfAbsent(a.get(i), token -> ids.size());
+		}
+		for (int j = 0; j < y.length; j++) {
+			y[j] = ids.computeIfAbsent(b.get(j), token -> ids.size());
+		}
+		return build(a, b, keptRuns(x, y));
+	}
+
+	/**
+	 * Diffs two Strings letter by letter.
+	 *
+	 * @return The shortest edit script from a to b
+	 */
+	public static Diff<Character> of(String a, String b) {
+		return build(letters(a), letters(b), keptRuns(codes(a), codes(b)));
+	}
+
+	/**
+	 * Diffs two texts line by line, as diff does.
+	 *
+	 * @return The shortest edit script from a's lines to b's
+	 */
+	public static Diff<String> ofLines(String a, String b) {
+		return of(Arrays.asList(a.split("\n", -1)), Arrays.asList(b.split("\n", -1)));
+	}
+
+	private static int[] codes(String str) {
+		int[] codes = new int[str.length()];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = str.charAt(i);
+		}
+		return codes;
+	}
+
+	private static List<Character> letters(String str) {
+		List<Character> letters = new ArrayList<>(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			letters.add(str.charAt(i));
+		}
+		return letters;
+	}
+
+	/**
+	 * Fills the gaps between kept runs with the deletes and inserts they
+	 * leave, deletes first.
+	 */
+	private static <T> Diff<T> build(List<? extends T> a, List<? extends T> b, List<int[]> kept) {
+		List<Edit> edits = new ArrayList<>();
+		int i = 0, j = 0, distance = 0;
+		// A run kept at the very end closes off the last gaps
+		kept.add(new int[] { a.size(), b.size(), 0 });
+		for (int[] run : kept) {
+			if (run[0] > i) {
+				edits.add(new Edit(Op.DELETE, i, j, run[0] - i));
+				distance += run[0] - i;
+			}
+			if (run[1] > j) {
+				edits.add(new Edit(Op.INSERT, run[0], j, run[1] - j));
+				distance += run[1] - j;
+			}
+			if (run[2] > 0) {
+				edits.add(new Edit(Op.KEEP, run[0], run[1], run[2]));
+			}
+			i = run[0] + run[2];
+			j = run[1] + run[2];
+		}
+		return new Diff<>(a, b, Collections.unmodifiableList(edits), distance);
+	}
+
+	// -----------------------------------------------
+	// Results
+	// -----------------------------------------------
+
+	/**
+	 * @return The runs turning the first sequence into the second, in order;
+	 *         no two neighbours of the same kind
+	 */
+	public List<Edit> getEdits() {
+		return edits;
+	}
+
+	/**
+	 * @return The number of tokens deleted or inserted, D
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * @return The tokens kept, which make a longest common subsequence
+	 */
+	public List<T> getLCS() {
+		List<T> lcs = new ArrayList<>();
+		for (Edit edit : edits) {
+			if (edit.op == Op.KEEP) {
+				lcs.addAll(a.subList(edit.aStart, edit.aStart + edit.length));
+			}
+		}
+		return lcs;
+	}
+
+	/**
+	 * @return The tokens of the second sequence, rebuilt from the first by the
+	 *         edit script
+	 */
+	public List<T> apply() {
+		List<T> result = new ArrayList<>();
+		for (Edit edit : edits) {
+			if (edit.op == Op.KEEP) {
+				result.addAll(a.subList(edit.aStart, edit.aStart + edit.length));
+			} else if (edit.op == Op.INSERT) {
+				result.addAll(b.subList(edit.bStart, edit.bStart + edit.length));
+			}
+		}
+		return result;
+	}
+
+	// -----------------------------------------------
+	// Myers' Algorithm
+	// -----------------------------------------------
+
+	/**
+	 * @return The runs of matches along a shortest edit path, in order, each
+	 *         as {start in a, start in b, length}
+	 */
+	static List<int[]> keptRuns(int[] a, int[] b) {
+		List<int[]> kept = new ArrayList<>();
+		diff(a, 0, a.length, b, 0, b.length, kept);
+		// Neighbouring runs split between halves join back up
+		List<int[]> joined = new ArrayList<>();
+		for (int[] run : kept) {
+			int[] last = joined.isEmpty() ? null : joined.get(joined.size() - 1);
+			if (last != null && last[0] + last[2] == run[0] && last[1] + last[2] == run[1]) {
+				last[2] += run[2];
+			} else {
+				joined.add(run);
+			}
+		}
+		return joined;
+	}
+
+	/**
+	 * Diffs a[aLo, aHi) against b[bLo, bHi), adding its kept runs to kept.
+	 */
+	private static void diff(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi, List<int[]> kept) {
+		int prefix = 0;
+		while (aLo + prefix < aHi && bLo + prefix < bHi && a[aLo + prefix] == b[bLo + prefix]) {
+			prefix++;
+		}
+		if (prefix > 0) {
+			kept.add(new int[] { aLo, bLo, prefix });
+			aLo += prefix;
+			bLo += prefix;
+		}
+		int suffix = 0;
+		while (aHi - suffix > aLo && bHi - suffix > bLo && a[aHi - suffix - 1] == b[bHi - suffix - 1]) {
+			suffix++;
+		}
+		aHi -= suffix;
+		bHi -= suffix;
+
+		// With either side used up, what is left is all deletes or inserts
+		if (aLo < aHi && bLo < bHi) {
+			int[] split = middle(a, aLo, aHi, b, bLo, bHi);
+			// Otherwise nothing is in common, and all of it is deleted or inserted
+			if (split != null) {
+				diff(a, aLo, split[0], b, bLo, split[1], kept);
+				diff(a, split[0], aHi, b, split[1], bHi, kept);
+			}
+		}
+
+		if (suffix > 0) {
+			kept.add(new int[] { aHi, bHi, suffix });
+		}
+	}
+
+	/**
+	 * Runs the D-paths from both corners of a[aLo, aHi) against b[bLo, bHi)
+	 * one D at a time until they overlap. v[k] is how far along a the furthest
+	 * path of the current D reaches on diagonal k = x - y, forwards in vf and
+	 * backwards, from the far corner over the reversed sequences, in vb.
+	 * Diagonals a path has left the grid along are not tried again.
+	 *
+	 * @return The point {x, y} where the forward path meeting the backward one
+	 *         ends, splitting an optimal path in two, or null if the sequences
+	 *         have no token in common
+	 */
+	private static int[] middle(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi) {
+		int n = aHi - aLo, m = bHi - bLo;
+		int maxD = (n + m + 1) / 2, offset = maxD;
+		int[] vf = new int[2 * maxD + 2], vb = new int[2 * maxD + 2];
+		Arrays.fill(vf, -1);
+		Arrays.fill(vb, -1);
+		vf[offset + 1] = 0;
+		vb[offset + 1] = 0;
+		int delta = n - m;
+		// The paths meet going forwards when their diagonals differ in parity
+		boolean forwardMeets = (delta & 1) != 0;
+		int fStart = 0, fEnd = 0, bStart = 0, bEnd = 0;
+
+		for (int d = 0; d < maxD; d++) {
+			for (int k = -d + fStart; k <= d - fEnd; k += 2) {
+				int x = k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1]) ? vf[offset + k + 1]
+						: vf[offset + k - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+					x++;
+					y++;
+				}
+				vf[offset + k] = x;
+				if (x > n) {
+					fEnd += 2;
+				} else if (y > m) {
+					fStart += 2;
+				} else if (forwardMeets) {
+					int back = offset + delta - k;
+					if (back >= 0 && back < vb.length && vb[back] != -1 && x >= n - vb[back]) {
+						return new int[] { aLo + x, bLo + y };
+					}
+				}
+			}
+			for (int k = -d + bStart; k <= d - bEnd; k += 2) {
+				int x = k == -d || (k != d && vb[offset + k - 1] < vb[offset + k + 1]) ? vb[offset + k + 1]
+						: vb[offset + k - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && a[aHi - x - 1] == b[bHi - y - 1]) {
+					x++;
+					y++;
+				}
+				vb[offset + k] = x;
+				if (x > n) {
+					bEnd += 2;
+				} else if (y > m) {
+					bStart += 2;
+				} else if (!forwardMeets) {
+					int front = offset + delta - k;
+					if (front >= 0 && front < vf.length && vf[front] != -1) {
+						int fx = vf[front], fy = fx - (front - offset);
+						if (fx >= n - x) {
+							return new int[] { aLo + fx, bLo + fy };
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+}
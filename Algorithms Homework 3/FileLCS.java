@@ -0,0 +1,361 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * LCS of two files too large to read into Strings, byte by byte. Both files
+ * are memory-mapped, and the rows of the table are streamed one at a time in
+ * the bit-vector form of LCS.bitParallelLCSLength, one bit a col, so a whole
+ * row of a file of n bytes takes n / 8 bytes. The shorter file goes along the
+ * cols, and its match masks, n / 8 bytes for each distinct byte in it, are
+ * the only other memory needed.
+ *
+ * To recover an alignment, the row is written to a checkpoint file every
+ * so many rows. The alignment is then traced back one strip of rows at a
+ * time, from the last up: each strip is refilled from the checkpoint at its
+ * top, over only the cols left of where the path leaves it, and the path is
+ * followed up to the checkpoint row, where the strip above takes over.
+ *
+ * A strip too tall to refill in STRIP_BYTES is first streamed through once,
+ * keeping as many of its rows as fit in memory, and each piece between two of
+ * them is then traced the same way, splitting again if need be. Neither the
+ * checkpoint file, held to CHECKPOINT_BYTES by default, nor memory thus grows
+ * with the product of the file lengths: each level of splitting takes about
+ * STRIP_BYTES, or 2 rows if a row is larger, and one more pass over the strip.
+ */
+public final class FileLCS {
+
+	// Bytes a strip refilled during recovery may take; taller strips are split
+	static final long STRIP_BYTES = 64L << 20;
+	// Bytes the checkpoints written by default may take
+	static final long CHECKPOINT_BYTES = 1L << 30;
+	// Largest part of a file mapped at once
+	private static final int SEGMENT_BITS = 30;
+	// The checkpoint file starts with the interval, rows and cols
+	private static final int HEADER_BYTES = 4 + 8 + 8;
+
+	/**
+	 * A matched pair of an alignment.
+	 */
+	@FunctionalInterface
+	public interface MatchConsumer {
+		/**
+		 * @param aIndex The offset of the matched byte in the first file
+		 * @param bIndex The offset of the matched byte in the second file
+		 */
+		void accept(long aIndex, long bIndex);
+	}
+
+	private final MappedBytes rows, cols;
+	// Whether the first file goes along the cols, being the shorter
+	private final boolean swapped;
+	private final int words;
+	private final long stripBytes;
+	// The match mask of each byte value along the cols, null if it is absent
+	private final long[][] masks = new long[256][];
+
+	/**
+	 * Maps both files and makes the match masks of the shorter.
+	 *
+	 * @param a The first file
+	 * @param b The second file
+	 * @throws IOException If either file cannot be mapped
+	 */
+	public FileLCS(Path a, Path b) throws IOException {
+		this(a, b, STRIP_BYTES);
+	}
+
+	/**
+	 * @param stripBytes Bytes a strip refilled during recovery may take
+	 */
+	FileLCS(Path a, Path b, long stripBytes) throws IOException {
+		this.stripBytes = stripBytes;
+		MappedBytes first = new MappedBytes(a), second = new MappedBytes(b);
+		this.swapped = first.length < second.length;
+		this.rows = swapped ? second : first;
+		this.cols = swapped ? first : second;
+		if ((cols.length + 63) >>> 6 > (Integer.MAX_VALUE - 8) / 8) {
+			throw new IllegalArgumentException("Both files are too long for one row: " + cols.length + " bytes");
+		}
+		this.words = (int) ((cols.length + 63) >>> 6);
+		for (long j = 0; j < cols.length; j++) {
+			int letter = cols.get(j) & 0xFF;
+			if (masks[letter] == null) {
+				masks[letter] = new long[words];
+			}
+			masks[letter][(int) (j >>> 6)] |= 1L << j;
+		}
+	}
+
+	/**
+	 * @return The length of the longest common subsequences of the two files
+	 */
+	public long length() throws IOException {
+		return fill(null, 0);
+	}
+
+	/**
+	 * Finds the LCS length, checkpointing about the square root of the rows,
+	 * but no more of them than fit in CHECKPOINT_BYTES.
+	 *
+	 * @param checkpoints The file to write the checkpoints to, for alignment
+	 * @return The length of the longest common subsequences of the two files
+	 */
+	public long length(Path checkpoints) throws IOException {
+		long count = Math.max(1, Math.min((long) Math.ceil(Math.sqrt(rows.length + 1)), CHECKPOINT_BYTES / Math.max(8L, 8L * words)));
+		long interval = (rows.length + count) / count;
+		return length(checkpoints, (int) Math.min(Integer.MAX_VALUE, interval));
+	}
+
+	/**
+	 * @param checkpoints The file to write the checkpoints to, for alignment
+	 * @param interval    How many rows apart the checkpoints are
+	 * @return The length of the longest common subsequences of the two files
+	 */
+	public long length(Path checkpoints, int interval) throws IOException {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Checkpoints must be at least a row apart");
+		}
+		long size;
+		try {
+			size = Math.addExact(HEADER_BYTES, Math.multiplyExact(rows.length / interval + 1, 8L * words));
+		} catch (ArithmeticException e) {
+			size = Long.MAX_VALUE;
+		}
+		Path directory = checkpoints.toAbsolutePath().getParent();
+		long free = Files.getFileStore(directory).getUsableSpace();
+		if (size > free) {
+			throw new IOException("Checkpoints every " + interval + " rows would take " + size + " bytes, but only "
+					+ free + " are free");
+		}
+		try (FileChannel out = FileChannel.open(checkpoints, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(interval).putLong(rows.length).putLong(cols.length).flip();
+			while (header.hasRemaining()) {
+				out.write(header);
+			}
+			return fill(out, interval);
+		}
+	}
+
+	/**
+	 * Streams the rows down the whole table, writing every interval-th one,
+	 * the first included, to out if there is one.
+	 */
+	private long fill(FileChannel out, int interval) throws IOException {
+		long[] v = new long[words];
+		Arrays.fill(v, -1L);
+		ByteBuffer row = out == null ? null : ByteBuffer.allocate(8 * words);
+		for (long i = 0; i <= rows.length; i++) {
+			if (out != null && i % interval == 0) {
+				row.clear();
+				row.asLongBuffer().put(v);
+				while (row.hasRemaining()) {
+					out.write(row);
+				}
+			}
+			if (i < rows.length) {
+				advance(v, masks[rows.get(i) & 0xFF], words);
+			}
+		}
+		return cols.length - ones(v, cols.length);
+	}
+
+	/**
+	 * Moves the row vector v one row down, over its first words longs, for
+	 * a row whose byte has the given match mask.
+	 */
+	private static void advance(long[] v, long[] mask, int words) {
+		// A byte missing from the cols leaves the row as it is
+		if (mask == null) {
+			return;
+		}
+		long carry = 0;
+		for (int w = 0; w < words; w++) {
+			long row = v[w], matched = row & mask[w];
+			long sum = row + matched + carry;
+			carry = ((row & matched) | ((row | matched) & ~sum)) >>> 63;
+			v[w] = sum | (row & ~mask[w]);
+		}
+	}
+
+	/**
+	 * @return The number of 1 bits among the first c bits of v, the cols at
+	 *         which the row's LCS length does not grow
+	 */
+	private static long ones(long[] v, long c) {
+		long ones = 0;
+		int full = (int) (c >>> 6);
+		for (int w = 0; w < full; w++) {
+			ones += Long.bitCount(v[w]);
+		}
+		if ((c & 63) != 0) {
+			ones += Long.bitCount(v[full] & (-1L >>> (64 - (c & 63))));
+		}
+		return ones;
+	}
+
+	private static int bit(long[] v, long col) {
+		return (int) (v[(int) (col >>> 6)] >>> col) & 1;
+	}
+
+	/**
+	 * Traces one longest common subsequence back through the checkpoints
+	 * written by length(checkpoints) for these same files.
+	 *
+	 * @param checkpoints The file the checkpoints were written to
+	 * @param consumer    Given every matched pair, from the last back to the
+	 *                    first
+	 */
+	public void alignment(Path checkpoints, MatchConsumer consumer) throws IOException {
+		try (FileChannel in = FileChannel.open(checkpoints, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(in, header, 0);
+			header.flip();
+			int interval = header.getInt();
+			if (header.getLong() != rows.length || header.getLong() != cols.length) {
+				throw new IllegalArgumentException("Checkpoints are for other files");
+			}
+
+			long r1 = rows.length, c = cols.length;
+			while (r1 > 0 && c > 0) {
+				long r0 = (r1 - 1) / interval * interval;
+				long[] top = new long[(int) ((c + 63) >>> 6)];
+				ByteBuffer buffer = ByteBuffer.allocate(8 * top.length);
+				readFully(in, buffer, HEADER_BYTES + r0 / interval * 8L * words);
+				buffer.flip();
+				buffer.asLongBuffer().get(top);
+				c = trace(top, r0, r1, c, consumer);
+				r1 = r0;
+			}
+		}
+	}
+
+	/**
+	 * Follows the path up from (r1, c) to row r0 or col 0, given the row at
+	 * r0, refilling the rows between in one strip if it fits in stripBytes,
+	 * and otherwise splitting them at rows kept in memory.
+	 *
+	 * @param top The row at r0, over at least the cols left of c
+	 * @return The col at which the path reaches row r0
+	 */
+	private long trace(long[] top, long r0, long r1, long c, MatchConsumer consumer) {
+		int cw = (int) ((c + 63) >>> 6);
+		long fits = Math.max(2, stripBytes / (8L * cw));
+		if (r1 - r0 < fits) {
+			// The strip's rows, over the cols left of c, from r0 down
+			long[][] strip = new long[(int) (r1 - r0) + 1][];
+			strip[0] = Arrays.copyOf(top, cw);
+			for (int t = 1; t < strip.length; t++) {
+				strip[t] = strip[t - 1].clone();
+				advance(strip[t], masks[rows.get(r0 + t - 1) & 0xFF], cw);
+			}
+			return traceStrip(strip, r0, r1, c, consumer);
+		}
+
+		// Keep every step-th row, as many as fit, then trace the pieces from the last up
+		long step = (r1 - r0 + fits - 1) / fits;
+		long[][] kept = new long[(int) ((r1 - r0 + step - 1) / step)][];
+		long[] v = Arrays.copyOf(top, cw);
+		for (long r = r0; r < r1; r++) {
+			if ((r - r0) % step == 0) {
+				kept[(int) ((r - r0) / step)] = v.clone();
+			}
+			advance(v, masks[rows.get(r) & 0xFF], cw);
+		}
+		for (int k = kept.length - 1; k >= 0 && c > 0; k--) {
+			long lo = r0 + k * step;
+			c = trace(kept[k], lo, r1, c, consumer);
+			kept[k] = null;
+			r1 = lo;
+		}
+		return c;
+	}
+
+	private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Checkpoint file ends early");
+			}
+		}
+	}
+
+	/**
+	 * Follows the path up from (r1, c) to row r0 or col 0, taking the
+	 * diagonal at every match and going up whenever that keeps the length.
+	 *
+	 * @return The col at which the path reaches row r0
+	 */
+	private long traceStrip(long[][] strip, long r0, long r1, long c, MatchConsumer consumer) {
+		long r = r1;
+		// The LCS length at (r, c), kept up as the path moves
+		long here = c - ones(strip[(int) (r - r0)], c);
+		while (r > r0 && c > 0) {
+			long[] row = strip[(int) (r - r0)], above = strip[(int) (r - 1 - r0)];
+			// The LCS length at (r - 1, c), counted once for each row
+			long up = c - ones(above, c);
+			while (true) {
+				if (rows.get(r - 1) == cols.get(c - 1)) {
+					emit(consumer, r - 1, c - 1);
+					r--;
+					c--;
+					here--;
+					break;
+				}
+				if (up == here) {
+					r--;
+					break;
+				}
+				here -= 1 - bit(row, c - 1);
+				up -= 1 - bit(above, c - 1);
+				c--;
+			}
+		}
+		return c;
+	}
+
+	private void emit(MatchConsumer consumer, long row, long col) {
+		if (swapped) {
+			consumer.accept(col, row);
+		} else {
+			consumer.accept(row, col);
+		}
+	}
+
+	/**
+	 * A file mapped into memory in segments, each small enough for a
+	 * MappedByteBuffer.
+	 */
+	private static final class MappedBytes {
+		final long length;
+		private final MappedByteBuffer[] segments;
+
+		MappedBytes(Path path) throws IOException {
+			// The mappings stay valid once the channel is closed
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				length = channel.size();
+				segments = new MappedByteBuffer[(int) ((length + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+				for (int s = 0; s < segments.length; s++) {
+					long start = (long) s << SEGMENT_BITS;
+					segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+							Math.min(1L << SEGMENT_BITS, length - start));
+				}
+			}
+		}
+
+		byte get(long index) {
+			return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & ((1 << SEGMENT_BITS) - 1)));
+		}
+	}
+
+}
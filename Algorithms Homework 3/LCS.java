@@ -1,10 +1,21 @@
 // Jigar Swaminarayan
 package lcs;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class LCS {
 
@@ -44,19 +55,28 @@ public class LCS {
 		return result;
 	}
 
+	/**
+	 * How executeLCS fills the table.
+	 */
+	private enum Fill {
+		TOP_DOWN, BOTTOM_UP, WAVEFRONT
+	}
+
 	// [!] TODO: Make sure memoCheck is being used properly
-	private static Set<String> executeLCS(boolean topDown, String rStr, String cStr) {
+	private static Set<String> executeLCS(Fill fill, String rStr, String cStr) {
 		Set<String> solution = new HashSet<String>();
 		int rLen = rStr.length();
 		int cLen = cStr.length();
 		int[][] memo = new int[rLen+1][cLen+1];
-		if (topDown) {
+		if (fill == Fill.TOP_DOWN) {
 			boolean[][] graveyard = new boolean[rLen+1][cLen+1];
 			topDownFillTable(rStr, rLen, cStr, cLen, memo, graveyard);
 			solution = collectSolution(rStr, rLen, cStr, cLen, memo);
 		} else {
-			memo = bottomUpFillTable(rStr, cStr);
-			solution = collectSolution(rStr, rLen, cStr, cLen, memo);
+			memo = fill == Fill.WAVEFRONT ? wavefrontFillTable(rStr, cStr, ForkJoinPool.commonPool())
+					: bottomUpFillTable(rStr, cStr);
+			// A whole table, so each LCS can be walked once along the DAG
+			solution = new LCSDag(rStr, cStr, memo).stream().collect(Collectors.toCollection(HashSet::new));
 		}
 		memoCheck = memo;
 		return solution;
@@ -86,10 +106,10 @@ public class LCS {
 	 */
 	
 	public static Set<String> bottomUpLCS(String rStr, String cStr) {	
-		return executeLCS(false, rStr, cStr);
+		return executeLCS(Fill.BOTTOM_UP, rStr, cStr);
 	}
 
-	private static int[][] bottomUpFillTable(String rStr, String cStr) {
+	static int[][] bottomUpFillTable(String rStr, String cStr) {
 		int[][] table = new int[rStr.length()+1][cStr.length()+1];
 		
 		for(int row = 1; row < rStr.length() + 1; row++) {
@@ -104,6 +124,210 @@ public class LCS {
 		return table;
 	}
 
+	// -----------------------------------------------
+	// Banded LCS
+	// -----------------------------------------------
+
+	/**
+	 * Whether rStr and cStr are within k edits of each other, an edit being
+	 * the deletion or insertion of one letter.
+	 * 
+	 * @see #bandedLCSLength(String, String, int)
+	 */
+	public static boolean withinEdits(String rStr, String cStr, int k) {
+		return bandedLCSLength(rStr, cStr, k) >= 0;
+	}
+
+	/**
+	 * Bottom-up approach to the LCS length for Strings that may only differ in
+	 * up to k edits, m + n - 2 * LCS. A path through the table with that few
+	 * edits never strays more than k cells from the main diagonal, so only
+	 * that band is filled, two rows at a time. After each row, the LCS can
+	 * grow by at most as many letters as the shorter of the remaining rows
+	 * and cols from any cell, so the fill stops as soon as even that leaves
+	 * too many edits. Takes O(kn) time and O(k) memory.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @param k    The most edits allowed
+	 * @return The length of the longest common subsequences between rStr and
+	 *         cStr, or -1 if they are more than k edits apart; memoCheck is
+	 *         left untouched, as there is no table
+	 */
+	public static int bandedLCSLength(String rStr, String cStr, int k) {
+		int m = rStr.length(), n = cStr.length();
+		if (k < 0 || Math.abs(m - n) > k) {
+			return -1;
+		}
+		// Entry d of a row is the cell of col j = row - band + d
+		int band = Math.min(k, Math.max(m, n));
+		int[] above = new int[2 * band + 1], row = new int[2 * band + 1];
+		Arrays.fill(above, Integer.MIN_VALUE);
+		for (int col = 0; col <= Math.min(n, band); col++) {
+			above[col + band] = 0;
+		}
+
+		for (int r = 1; r <= m; r++) {
+			Arrays.fill(row, Integer.MIN_VALUE);
+			// The best LCS any cell of the row can still lead to
+			int best = Integer.MIN_VALUE;
+			if (r <= band) {
+				row[band - r] = 0;
+				best = Math.min(m - r, n);
+			}
+			for (int col = Math.max(1, r - band); col <= Math.min(n, r + band); col++) {
+				int d = col - r + band;
+				if (rStr.charAt(r-1) == cStr.charAt(col-1)) {
+					row[d] = above[d] + 1;
+				} else {
+					row[d] = Math.max(d < 2 * band ? above[d + 1] : Integer.MIN_VALUE,
+							d > 0 ? row[d - 1] : Integer.MIN_VALUE);
+				}
+				best = Math.max(best, row[d] + Math.min(m - r, n - col));
+			}
+			if (m + n - 2L * best > k) {
+				return -1;
+			}
+			int[] filled = row;
+			row = above;
+			above = filled;
+		}
+		int length = above[n - m + band];
+		return m + n - 2L * length > k ? -1 : length;
+	}
+
+	// -----------------------------------------------
+	// Wavefront LCS
+	// -----------------------------------------------
+
+	// Side of the square tiles the wavefront fill hands to each task
+	private static final int TILE = 256;
+
+	/**
+	 * Parallel version of bottomUpLCS. The cells of an anti-diagonal never
+	 * depend on one another, so the table is cut into square tiles which are
+	 * filled on ForkJoin workers as a wavefront: a tile is started as soon as
+	 * the tiles above and to its left are done. The table comes out exactly as
+	 * bottomUpLCS fills it.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return The longest common subsequence between rStr and cStr + [Side Effect]
+	 *         sets memoCheck to refer to table
+	 */
+	public static Set<String> wavefrontLCS(String rStr, String cStr) {
+		return executeLCS(Fill.WAVEFRONT, rStr, cStr);
+	}
+
+	static int[][] wavefrontFillTable(String rStr, String cStr, ForkJoinPool pool) {
+		int[][] table = new int[rStr.length()+1][cStr.length()+1];
+		int tileRows = (rStr.length() + TILE - 1) / TILE, tileCols = (cStr.length() + TILE - 1) / TILE;
+		if (tileRows == 0 || tileCols == 0) {
+			return table;
+		}
+		// Number of tiles, above and to the left, each tile still waits for
+		AtomicIntegerArray waiting = new AtomicIntegerArray(tileRows * tileCols);
+		for (int tr = 0; tr < tileRows; tr++) {
+			for (int tc = 0; tc < tileCols; tc++) {
+				waiting.set(tr * tileCols + tc, (tr > 0 ? 1 : 0) + (tc > 0 ? 1 : 0));
+			}
+		}
+		pool.invoke(new TileTask(null, rStr, cStr, table, waiting, tileCols, 0, 0));
+		return table;
+	}
+
+	/**
+	 * Fills one tile of the wavefront, then starts every neighbor it was the
+	 * last to wait for. Each task completes once the tasks it started have.
+	 */
+	private static final class TileTask extends CountedCompleter<Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String rStr, cStr;
+		private final int[][] table;
+		private final AtomicIntegerArray waiting;
+		private final int tileCols, tr, tc;
+
+		TileTask(CountedCompleter<?> parent, String rStr, String cStr, int[][] table, AtomicIntegerArray waiting,
+				int tileCols, int tr, int tc) {
+			super(parent);
+			this.rStr = rStr;
+			this.cStr = cStr;
+			this.table = table;
+			this.waiting = waiting;
+			this.tileCols = tileCols;
+			this.tr = tr;
+			this.tc = tc;
+		}
+
+		@Override
+		public void compute() {
+			int rowEnd = Math.min(rStr.length(), (tr + 1) * TILE), colEnd = Math.min(cStr.length(), (tc + 1) * TILE);
+			for (int row = tr * TILE + 1; row <= rowEnd; row++) {
+				char letter = rStr.charAt(row-1);
+				int[] above = table[row-1], current = table[row];
+				for (int col = tc * TILE + 1; col <= colEnd; col++) {
+					if (letter == cStr.charAt(col-1)) {
+						current[col] = 1 + above[col-1];
+					} else {
+						current[col] = Math.max(above[col], current[col-1]);
+					}
+				}
+			}
+			if (colEnd < cStr.length()) {
+				release(tr, tc + 1);
+			}
+			if (rowEnd < rStr.length()) {
+				release(tr + 1, tc);
+			}
+			tryComplete();
+		}
+
+		private void release(int row, int col) {
+			if (waiting.decrementAndGet(row * tileCols + col) == 0) {
+				addToPendingCount(1);
+				new TileTask(this, rStr, cStr, table, waiting, tileCols, row, col).fork();
+			}
+		}
+	}
+
+	// -----------------------------------------------
+	// LCS DAG
+	// -----------------------------------------------
+
+	/**
+	 * Fills the table bottom-up and builds the DAG of its longest common
+	 * subsequences, from which they can be counted, or listed one at a time,
+	 * without collecting them all into a Set.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return The DAG of the longest common subsequences between rStr and cStr
+	 *         + [Side Effect] sets memoCheck to refer to table
+	 */
+	public static LCSDag lcsDag(String rStr, String cStr) {
+		memoCheck = bottomUpFillTable(rStr, cStr);
+		return new LCSDag(rStr, cStr, memoCheck);
+	}
+
+	/**
+	 * @return The number of distinct longest common subsequences between rStr
+	 *         and cStr + [Side Effect] sets memoCheck to refer to table
+	 */
+	public static BigInteger countLCS(String rStr, String cStr) {
+		return lcsDag(rStr, cStr).count();
+	}
+
+	/**
+	 * @return The distinct longest common subsequences between rStr and cStr,
+	 *         each built only once the Stream reaches it + [Side Effect] sets
+	 *         memoCheck to refer to table
+	 */
+	public static Stream<String> streamLCS(String rStr, String cStr) {
+		return lcsDag(rStr, cStr).stream();
+	}
+
 	// -----------------------------------------------
 	// Top-Down LCS
 	// -----------------------------------------------
@@ -120,25 +344,773 @@ public class LCS {
 	 */
 	
 	public static Set<String> topDownLCS(String rStr, String cStr) {
-		return executeLCS(true, rStr, cStr);
+		return executeLCS(Fill.TOP_DOWN, rStr, cStr);
 	}
 
 	private static int topDownFillTable(String rStr, int r, String cStr, int c, int[][] memo, boolean[][] graveyard) {
-		
+		return topDownFill(rStr, r, cStr, c, new DenseMemo(memo, graveyard), 0).get(r, c);
+	}
+
+	// The sparse memo of topDownLCSLength gives way to a dense one once it
+	// holds more than this fraction of the table: at up to 48 bytes a cell
+	// against 5 for the dense one, it would soon be the larger
+	private static final int DENSE_FRACTION = 10;
+
+	/**
+	 * Top-down approach to the LCS length, for Strings too long for topDownLCS.
+	 * The recursion is driven by an explicit stack, so it never runs out of
+	 * call stack, and as top-down only visits the cells it needs, it memoizes
+	 * them in a hash map keyed by cell instead of a whole table, moving to a
+	 * dense table only if it ends up visiting much of it.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return The length of the longest common subsequences and how many
+	 *         cells were visited to find it; memoCheck is left untouched
+	 */
+	public static TopDownResult topDownLCSLength(String rStr, String cStr) {
+		int rLen = rStr.length(), cLen = cStr.length();
+		long tableSize = (long) (rLen + 1) * (cLen + 1);
+		Memo memo = topDownFill(rStr, rLen, cStr, cLen, new SparseMemo(), tableSize / DENSE_FRACTION);
+		int length = rLen == 0 || cLen == 0 ? 0 : memo.get(rLen, cLen);
+		return new TopDownResult(length, memo.size(), tableSize, memo instanceof SparseMemo);
+	}
+
+	/**
+	 * The outcome of topDownLCSLength.
+	 */
+	public static final class TopDownResult {
+		/** The length of the longest common subsequences */
+		public final int length;
+		/** The number of cells whose subproblem was solved */
+		public final long cellsVisited;
+		/** The number of cells in the whole table, gutters included */
+		public final long tableSize;
+		/** Whether the memo stayed a hash map to the end */
+		public final boolean sparse;
+
+		TopDownResult(int length, long cellsVisited, long tableSize, boolean sparse) {
+			this.length = length;
+			this.cellsVisited = cellsVisited;
+			this.tableSize = tableSize;
+			this.sparse = sparse;
+		}
+
+		/**
+		 * @return The fraction of the table visited
+		 */
+		public double visitedFraction() {
+			return (double) cellsVisited / tableSize;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("length %d, %d of %d cells visited (%.2f%%), %s memo", length, cellsVisited,
+					tableSize, 100 * visitedFraction(), sparse ? "sparse" : "dense");
+		}
+	}
+
+	/**
+	 * Fills the memo top-down from the cell (r, c), in the same order and over
+	 * the same cells as the recursion would, pushing a cell's subproblems on a
+	 * stack and coming back to it once they are solved.
+	 * 
+	 * @param denseAbove If positive, a sparse memo holding more cells than this
+	 *                   is copied into a dense one, which carries on
+	 * @return The memo filled, which may not be the one given
+	 */
+	private static Memo topDownFill(String rStr, int r, String cStr, int c, Memo memo, long denseAbove) {
 		if (r == 0 || c == 0) {
-			return 0;
+			return memo;
 		}
-		if (graveyard[r][c] == true) {
-			return memo[r][c];
-		} else if (rStr.charAt(r-1) == cStr.charAt(c-1)) {
-			graveyard[r][c] = true;
-			memo[r][c] = 1 + topDownFillTable(rStr, r-1, cStr, c-1, memo, graveyard);
+		long[] stack = new long[64];
+		int top = 0;
+		stack[top++] = cell(r, c);
+		while (top > 0) {
+			long cell = stack[top - 1];
+			int row = (int) (cell >>> 32), col = (int) cell;
+			if (memo.contains(row, col)) {
+				top--;
+				continue;
+			}
+			if (stack.length - top < 2) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			if (rStr.charAt(row-1) == cStr.charAt(col-1)) {
+				if (row == 1 || col == 1 || memo.contains(row-1, col-1)) {
+					memo.put(row, col, 1 + (row == 1 || col == 1 ? 0 : memo.get(row-1, col-1)));
+					top--;
+				} else {
+					stack[top++] = cell(row-1, col-1);
+				}
+			} else {
+				boolean aboveDone = row == 1 || memo.contains(row-1, col);
+				boolean leftDone = col == 1 || memo.contains(row, col-1);
+				if (aboveDone && leftDone) {
+					memo.put(row, col, Math.max(row == 1 ? 0 : memo.get(row-1, col),
+							col == 1 ? 0 : memo.get(row, col-1)));
+					top--;
+				} else {
+					// The cell above goes on top, to be solved first as in the recursion
+					if (!leftDone) {
+						stack[top++] = cell(row, col-1);
+					}
+					if (!aboveDone) {
+						stack[top++] = cell(row-1, col);
+					}
+				}
+			}
+			if (denseAbove > 0 && memo instanceof SparseMemo && memo.size() > denseAbove) {
+				memo = ((SparseMemo) memo).toDense(rStr.length(), cStr.length());
+			}
+		}
+		return memo;
+	}
+
+	private static long cell(int r, int c) {
+		return (long) r << 32 | c;
+	}
+
+	/**
+	 * The solved subproblems of a top-down fill, gutters excluded.
+	 */
+	private interface Memo {
+		boolean contains(int r, int c);
+
+		int get(int r, int c);
+
+		void put(int r, int c, int length);
+
+		long size();
+	}
+
+	/**
+	 * The table and graveyard of topDownLCS.
+	 */
+	private static final class DenseMemo implements Memo {
+		private final int[][] memo;
+		private final boolean[][] graveyard;
+		private long size;
+
+		DenseMemo(int[][] memo, boolean[][] graveyard) {
+			this.memo = memo;
+			this.graveyard = graveyard;
+		}
+
+		public boolean contains(int r, int c) {
+			return graveyard[r][c];
+		}
+
+		public int get(int r, int c) {
 			return memo[r][c];
-		} else {
-			memo[r][c] = Math.max(topDownFillTable(rStr, r-1, cStr, c, memo ,graveyard), 
-					topDownFillTable(rStr, r, cStr, c-1, memo, graveyard));
+		}
+
+		public void put(int r, int c, int length) {
+			memo[r][c] = length;
 			graveyard[r][c] = true;
-			return memo[r][c];
+			size++;
+		}
+
+		public long size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Open-addressing hash map from packed cells to lengths, kept at most half
+	 * full; no cell off the gutters packs to 0, which marks an empty slot.
+	 */
+	private static final class SparseMemo implements Memo {
+		private long[] keys = new long[1 << 10];
+		private int[] values = new int[1 << 10];
+		private int size;
+
+		private int slot(long key) {
+			int mask = keys.length - 1;
+			int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+			while (keys[i] != 0 && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		public boolean contains(int r, int c) {
+			return keys[slot(cell(r, c))] != 0;
+		}
+
+		public int get(int r, int c) {
+			return values[slot(cell(r, c))];
+		}
+
+		public void put(int r, int c, int length) {
+			long key = cell(r, c);
+			int i = slot(key);
+			if (keys[i] == 0) {
+				if (2 * (size + 1) > keys.length) {
+					grow();
+					i = slot(key);
+				}
+				keys[i] = key;
+				size++;
+			}
+			values[i] = length;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldValues.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0) {
+					int j = slot(oldKeys[i]);
+					keys[j] = oldKeys[i];
+					values[j] = oldValues[i];
+				}
+			}
+		}
+
+		public long size() {
+			return size;
+		}
+
+		DenseMemo toDense(int rLen, int cLen) {
+			DenseMemo dense = new DenseMemo(new int[rLen+1][cLen+1], new boolean[rLen+1][cLen+1]);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != 0) {
+					dense.put((int) (keys[i] >>> 32), (int) keys[i], values[i]);
+				}
+			}
+			return dense;
+		}
+	}
+
+	// -----------------------------------------------
+	// Linear-Space LCS
+	// -----------------------------------------------
+
+	// Subproblems of more cells than this are split across ForkJoin tasks
+	private static final long PARALLEL_CELLS = 1 << 22;
+
+	/**
+	 * Hirschberg's divide-and-conquer approach to the LCS problem, which finds
+	 * a single longest common subsequence without ever holding the table. The
+	 * rows are split in half, the best column to split at is found by filling
+	 * the upper half's table forwards and the lower half's backwards, one row
+	 * at a time, and the two quarters either side of it are solved
+	 * recursively. Takes O(mn) time but only O(min(m, n)) memory.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return One longest common subsequence between rStr and cStr; memoCheck
+	 *         is left untouched, as there is no table
+	 */
+	public static String linearSpaceLCS(String rStr, String cStr) {
+		return linearSpaceLCS(rStr, cStr, false);
+	}
+
+	/**
+	 * @see #linearSpaceLCS(String, String)
+	 * @param parallel Whether to solve the two halves of large subproblems on
+	 *                 ForkJoin tasks at the same time
+	 */
+	public static String linearSpaceLCS(String rStr, String cStr, boolean parallel) {
+		// A subsequence of both is one either way round, so the shorter String
+		// goes along the cols, which is all the rows ever hold
+		char[] r = (rStr.length() >= cStr.length() ? rStr : cStr).toCharArray();
+		char[] c = (rStr.length() >= cStr.length() ? cStr : rStr).toCharArray();
+		HirschbergTask task = new HirschbergTask(r, 0, r.length, c, 0, c.length, parallel);
+		return (parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute()).toString();
+	}
+
+	/**
+	 * One subproblem of linearSpaceLCS: the LCS of r[r0, r1) and c[c0, c1).
+	 */
+	private static final class HirschbergTask extends RecursiveTask<StringBuilder> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final char[] r, c;
+		private final int r0, r1, c0, c1;
+		private final boolean parallel;
+
+		HirschbergTask(char[] r, int r0, int r1, char[] c, int c0, int c1, boolean parallel) {
+			this.r = r;
+			this.r0 = r0;
+			this.r1 = r1;
+			this.c = c;
+			this.c0 = c0;
+			this.c1 = c1;
+			this.parallel = parallel;
 		}
+
+		@Override
+		protected StringBuilder compute() {
+			if (r1 - r0 == 0 || c1 - c0 == 0) {
+				return new StringBuilder();
+			}
+			// A single row matches at most one letter
+			if (r1 - r0 == 1) {
+				StringBuilder result = new StringBuilder(1);
+				for (int col = c0; col < c1; col++) {
+					if (c[col] == r[r0]) {
+						result.append(r[r0]);
+						break;
+					}
+				}
+				return result;
+			}
+
+			int mid = (r0 + r1) >>> 1;
+			int[] upper = forwardRow(r, r0, mid, c, c0, c1);
+			int[] lower = backwardRow(r, mid, r1, c, c0, c1);
+			// The column the LCS crosses from the upper half into the lower
+			int split = 0;
+			for (int j = 1; j <= c1 - c0; j++) {
+				if (upper[j] + lower[j] > upper[split] + lower[split]) {
+					split = j;
+				}
+			}
+
+			HirschbergTask top = new HirschbergTask(r, r0, mid, c, c0, c0 + split, parallel),
+					bottom = new HirschbergTask(r, mid, r1, c, c0 + split, c1, parallel);
+			if (parallel && (long) (r1 - r0) * (c1 - c0) > PARALLEL_CELLS) {
+				bottom.fork();
+				return top.compute().append(bottom.join());
+			}
+			return top.compute().append(bottom.compute());
+		}
+	}
+
+	/**
+	 * Fills the table of r[r0, r1) against c[c0, c1) one row at a time.
+	 * 
+	 * @return The last row: entry j is the LCS length of r[r0, r1) and
+	 *         c[c0, c0 + j)
+	 */
+	private static int[] forwardRow(char[] r, int r0, int r1, char[] c, int c0, int c1) {
+		int[] row = new int[c1 - c0 + 1];
+		for (int i = r0; i < r1; i++) {
+			int diagonal = 0;
+			for (int j = 1; j <= c1 - c0; j++) {
+				int above = row[j];
+				row[j] = r[i] == c[c0 + j - 1] ? diagonal + 1 : Math.max(above, row[j - 1]);
+				diagonal = above;
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Same as forwardRow, but for the reversed Strings.
+	 * 
+	 * @return The last row: entry j is the LCS length of r[r0, r1) and
+	 *         c[c0 + j, c1)
+	 */
+	private static int[] backwardRow(char[] r, int r0, int r1, char[] c, int c0, int c1) {
+		int width = c1 - c0;
+		int[] row = new int[width + 1];
+		for (int i = r1 - 1; i >= r0; i--) {
+			int diagonal = 0;
+			for (int j = width - 1; j >= 0; j--) {
+				int below = row[j];
+				row[j] = r[i] == c[c0 + j] ? diagonal + 1 : Math.max(below, row[j + 1]);
+				diagonal = below;
+			}
+		}
+		return row;
+	}
+
+	// -----------------------------------------------
+	// Bit-Parallel LCS Length
+	// -----------------------------------------------
+
+	/**
+	 * Bit-vector approach to the LCS length (Allison-Dix, in the form given by
+	 * Crochemore et al. and Hyyro), which advances a whole row of the table at
+	 * once. Bit j of the row vector V is 1 where the LCS length does not grow
+	 * between cols j and j + 1, so the length is the number of 0 bits; with M
+	 * the positions where the row's letter occurs along the cols, the next row
+	 * is (V + (V & M)) | (V & ~M). Over 64 cols a row spans several longs,
+	 * with the carry of the addition passed from each word to the next.
+	 * Takes O(mn / 64) time and O(n / 64) memory for each letter of the cols.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return The length of the longest common subsequences between rStr and
+	 *         cStr; memoCheck is left untouched, as there is no table
+	 */
+	public static int bitParallelLCSLength(String rStr, String cStr) {
+		// The shorter String goes along the cols, so that rows are fewer words
+		String rows = rStr.length() >= cStr.length() ? rStr : cStr;
+		String cols = rStr.length() >= cStr.length() ? cStr : rStr;
+		int n = cols.length();
+		if (n == 0) {
+			return 0;
+		}
+		if (n <= 64) {
+			return bitParallelLCSLengthWord(rows, cols);
+		}
+		return bitParallelLCSLength(rows, bitParallelMasks(cols), n, new long[(n + 63) >>> 6]);
+	}
+
+	/**
+	 * @return The match masks of bitParallelLCSLength for the given cols
+	 */
+	static MatchMasks<long[]> bitParallelMasks(String cols) {
+		int words = (cols.length() + 63) >>> 6;
+		MatchMasks<long[]> masks = new MatchMasks<>();
+		for (int j = 0; j < cols.length(); j++) {
+			long[] mask = masks.get(cols.charAt(j));
+			if (mask == null) {
+				mask = new long[words];
+				masks.put(cols.charAt(j), mask);
+			}
+			mask[j >>> 6] |= 1L << j;
+		}
+		return masks;
+	}
+
+	/**
+	 * bitParallelLCSLength over masks made beforehand, so that cols compared
+	 * against many rows need them made only once.
+	 * 
+	 * @param n The number of cols, at least one
+	 * @param v Room for the row vector, at least (n + 63) / 64 longs, which
+	 *          is overwritten
+	 */
+	static int bitParallelLCSLength(String rows, MatchMasks<long[]> masks, int n, long[] v) {
+		int words = (n + 63) >>> 6;
+		Arrays.fill(v, 0, words, -1L);
+		for (int i = 0; i < rows.length(); i++) {
+			long[] mask = masks.get(rows.charAt(i));
+			// A letter missing from the cols leaves the row as it is
+			if (mask == null) {
+				continue;
+			}
+			long carry = 0;
+			for (int w = 0; w < words; w++) {
+				long row = v[w], matched = row & mask[w];
+				long sum = row + matched + carry;
+				carry = ((row & matched) | ((row | matched) & ~sum)) >>> 63;
+				v[w] = sum | (row & ~mask[w]);
+			}
+		}
+
+		int length = 0;
+		for (int w = 0; w < words - 1; w++) {
+			length += Long.bitCount(~v[w]);
+		}
+		// Bits past the last col are not part of the row
+		return length + Long.bitCount(~v[words - 1] & (-1L >>> (64 - (n - ((words - 1) << 6)))));
+	}
+
+	/**
+	 * bitParallelLCSLength for cols that fit in a single long.
+	 */
+	private static int bitParallelLCSLengthWord(String rows, String cols) {
+		int n = cols.length();
+		MatchMasks<Long> masks = new MatchMasks<>();
+		for (int j = 0; j < n; j++) {
+			Long mask = masks.get(cols.charAt(j));
+			masks.put(cols.charAt(j), (mask == null ? 0 : mask) | 1L << j);
+		}
+		long v = -1L;
+		for (int i = 0; i < rows.length(); i++) {
+			Long mask = masks.get(rows.charAt(i));
+			if (mask != null) {
+				v = (v + (v & mask)) | (v & ~mask);
+			}
+		}
+		return Long.bitCount(~v & (-1L >>> (64 - n)));
+	}
+
+	/**
+	 * Match masks, or other data, keyed by letter: an array for Latin-1
+	 * letters, which is what most inputs are made of, and a map for the rest.
+	 */
+	static final class MatchMasks<M> {
+
+		private final Object[] latin = new Object[256];
+		private Map<Character, M> others;
+
+		@SuppressWarnings("unchecked")
+		M get(char letter) {
+			if (letter < 256) {
+				return (M) latin[letter];
+			}
+			return others == null ? null : others.get(letter);
+		}
+
+		void put(char letter, M mask) {
+			if (letter < 256) {
+				latin[letter] = mask;
+				return;
+			}
+			if (others == null) {
+				others = new HashMap<>();
+			}
+			others.put(letter, mask);
+		}
+	}
+
+	// -----------------------------------------------
+	// Sparse LCS
+	// -----------------------------------------------
+
+	/**
+	 * Hunt-Szymanski approach to the LCS problem, which only ever looks at the
+	 * pairs of matching letters instead of every cell of the table. Going down
+	 * the rows, thresh[k] is the smallest col at which a common subsequence of
+	 * length k can end so far; each match of the row, taken from the right so
+	 * that it cannot build on another of the same row, lowers the first
+	 * threshold at or past its col, found by binary search. Takes O((r + m)
+	 * log n) time and O(r + n) memory, for r matching pairs, which beats the
+	 * table by far when the Strings have few letters in common, as tokens drawn
+	 * from a large vocabulary do.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return One longest common subsequence between rStr and cStr; memoCheck
+	 *         is left untouched, as there is no table
+	 */
+	public static String sparseLCS(String rStr, String cStr) {
+		return huntSzymanski(rStr, cStr, matchPositions(cStr));
+	}
+
+	/**
+	 * Finds one longest common subsequence by sparseLCS or linearSpaceLCS,
+	 * whichever is cheaper: the matching pairs are counted beforehand, from
+	 * how often each letter occurs in either String, and the sparse approach
+	 * is taken when its O((r + m) log n) steps come to fewer than the mn cells
+	 * of the table.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return One longest common subsequence between rStr and cStr; memoCheck
+	 *         is left untouched, as there is no table
+	 */
+	public static String adaptiveLCS(String rStr, String cStr) {
+		MatchMasks<int[]> positions = matchPositions(cStr);
+		long matches = 0;
+		for (int i = 0; i < rStr.length(); i++) {
+			int[] at = positions.get(rStr.charAt(i));
+			matches += at == null ? 0 : at.length;
+		}
+		int log = 64 - Long.numberOfLeadingZeros(cStr.length());
+		if ((matches + rStr.length()) * log < (long) rStr.length() * cStr.length()) {
+			return huntSzymanski(rStr, cStr, positions);
+		}
+		return linearSpaceLCS(rStr, cStr);
+	}
+
+	/**
+	 * @return The cols at which each letter occurs along cStr, in order
+	 */
+	private static MatchMasks<int[]> matchPositions(String cStr) {
+		MatchMasks<int[]> counts = new MatchMasks<>(), positions = new MatchMasks<>();
+		for (int j = 0; j < cStr.length(); j++) {
+			int[] count = counts.get(cStr.charAt(j));
+			if (count == null) {
+				count = new int[1];
+				counts.put(cStr.charAt(j), count);
+			}
+			count[0]++;
+		}
+		for (int j = 0; j < cStr.length(); j++) {
+			int[] at = positions.get(cStr.charAt(j)), count = counts.get(cStr.charAt(j));
+			if (at == null) {
+				at = new int[count[0]];
+				positions.put(cStr.charAt(j), at);
+				count[0] = 0;
+			}
+			at[count[0]++] = j;
+		}
+		return positions;
+	}
+
+	private static String huntSzymanski(String rStr, String cStr, MatchMasks<int[]> positions) {
+		int n = cStr.length();
+		// thresh[k] is n while no common subsequence of length k has been found
+		int[] thresh = new int[n + 2];
+		Arrays.fill(thresh, n);
+		// The match ending the subsequence behind each threshold, as a linked
+		// list back through its earlier matches
+		int[] link = new int[n + 1];
+		int[] nodeCol = new int[16], nodePrev = new int[16];
+		int nodes = 0, length = 0;
+
+		for (int i = 0; i < rStr.length(); i++) {
+			int[] at = positions.get(rStr.charAt(i));
+			if (at == null) {
+				continue;
+			}
+			for (int p = at.length - 1; p >= 0; p--) {
+				int j = at[p];
+				// The first threshold at or past j, among those set so far
+				int lo = 1, hi = length + 1;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (thresh[mid] >= j) {
+						hi = mid;
+					} else {
+						lo = mid + 1;
+					}
+				}
+				if (thresh[lo] > j) {
+					thresh[lo] = j;
+					if (nodes == nodeCol.length) {
+						nodeCol = Arrays.copyOf(nodeCol, nodes * 2);
+						nodePrev = Arrays.copyOf(nodePrev, nodes * 2);
+					}
+					nodeCol[nodes] = j;
+					nodePrev[nodes] = lo > 1 ? link[lo - 1] : -1;
+					link[lo] = nodes++;
+					length = Math.max(length, lo);
+				}
+			}
+		}
+
+		char[] result = new char[length];
+		for (int k = length, node = length > 0 ? link[length] : -1; k > 0; k--, node = nodePrev[node]) {
+			result[k - 1] = cStr.charAt(nodeCol[node]);
+		}
+		return new String(result);
+	}
+
+	// -----------------------------------------------
+	// Diff LCS
+	// -----------------------------------------------
+
+	/**
+	 * Myers' difference algorithm applied to the LCS problem: the letters a
+	 * shortest edit script keeps are a longest common subsequence. Takes
+	 * O((m + n) D) time for D letters deleted or inserted, and O(m + n)
+	 * memory, so Strings that are nearly the same cost little more than
+	 * reading them. Diff gives the edit script itself, over any tokens.
+	 * 
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @return One longest common subsequence between rStr and cStr; memoCheck
+	 *         is left untouched, as there is no table
+	 */
+	public static String diffLCS(String rStr, String cStr) {
+		int[] r = new int[rStr.length()], c = new int[cStr.length()];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = rStr.charAt(i);
+		}
+		for (int j = 0; j < c.length; j++) {
+			c[j] = cStr.charAt(j);
+		}
+		StringBuilder result = new StringBuilder();
+		for (int[] run : Diff.keptRuns(r, c)) {
+			result.append(rStr, run[0], run[0] + run[2]);
+		}
+		return result.toString();
+	}
+
+	// -----------------------------------------------
+	// Token LCS
+	// -----------------------------------------------
+
+	/**
+	 * Bottom-up approach to the LCS problem over sequences of token ids, such
+	 * as Tokens makes of lines, words or code points. The table is a single
+	 * flat array, row after row, rather than an array per row. As it can hold
+	 * no more than 2^31 cells, no LCS in it is longer than 46340 tokens, so
+	 * its cells are shorts, read unsigned, or bytes when no LCS can be longer
+	 * than 255: a half or a quarter of the memory of ints.
+	 * 
+	 * @param rTokens The tokens found along the table's rows
+	 * @param cTokens The tokens found along the table's cols
+	 * @return One longest common subsequence between rTokens and cTokens;
+	 *         memoCheck is left untouched
+	 */
+	public static int[] tokenLCS(int[] rTokens, int[] cTokens) {
+		long cells = (long) (rTokens.length + 1) * (cTokens.length + 1);
+		if (cells > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many tokens for one table: " + cells + " cells");
+		}
+		if (Math.min(rTokens.length, cTokens.length) <= 0xFF) {
+			byte[] table = byteFillTable(rTokens, cTokens);
+			return collectTokens(rTokens, cTokens, cell -> table[cell] & 0xFF);
+		}
+		short[] table = shortFillTable(rTokens, cTokens);
+		return collectTokens(rTokens, cTokens, cell -> table[cell] & 0xFFFF);
+	}
+
+	/**
+	 * @return One longest common subsequence of the lines of rText and cText
+	 */
+	public static List<String> lineLCS(String rText, String cText) {
+		Tokens tokens = new Tokens();
+		return tokens.tokens(tokenLCS(tokens.lines(rText), tokens.lines(cText)));
+	}
+
+	/**
+	 * @return One longest common subsequence of the words of rText and cText
+	 */
+	public static List<String> wordLCS(String rText, String cText) {
+		Tokens tokens = new Tokens();
+		return tokens.tokens(tokenLCS(tokens.words(rText), tokens.words(cText)));
+	}
+
+	/**
+	 * @return One longest common subsequence of rStr and cStr, by code point,
+	 *         so that a letter outside the Basic Multilingual Plane is never
+	 *         split in half
+	 */
+	public static String codePointLCS(String rStr, String cStr) {
+		Tokens tokens = new Tokens();
+		return String.join("", tokens.tokens(tokenLCS(tokens.codePoints(rStr), tokens.codePoints(cStr))));
+	}
+
+	private static byte[] byteFillTable(int[] r, int[] c) {
+		int width = c.length + 1;
+		byte[] table = new byte[(r.length + 1) * width];
+		for (int row = 1; row <= r.length; row++) {
+			int here = row * width, above = here - width, token = r[row-1];
+			for (int col = 1; col < width; col++) {
+				table[here + col] = (byte) (token == c[col-1] ? (table[above + col-1] & 0xFF) + 1
+						: Math.max(table[above + col] & 0xFF, table[here + col-1] & 0xFF));
+			}
+		}
+		return table;
+	}
+
+	private static short[] shortFillTable(int[] r, int[] c) {
+		int width = c.length + 1;
+		short[] table = new short[(r.length + 1) * width];
+		for (int row = 1; row <= r.length; row++) {
+			int here = row * width, above = here - width, token = r[row-1];
+			for (int col = 1; col < width; col++) {
+				table[here + col] = (short) (token == c[col-1] ? (table[above + col-1] & 0xFFFF) + 1
+						: Math.max(table[above + col] & 0xFFFF, table[here + col-1] & 0xFFFF));
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Walks one path back from the last cell of a flat table.
+	 * 
+	 * @param table The value of each cell, by its index in the flat table
+	 */
+	private static int[] collectTokens(int[] r, int[] c, IntUnaryOperator table) {
+		int width = c.length + 1;
+		int row = r.length, col = c.length;
+		int[] result = new int[table.applyAsInt(row * width + col)];
+		for (int k = result.length; k > 0;) {
+			if (r[row-1] == c[col-1]) {
+				result[--k] = r[row-1];
+				row--;
+				col--;
+			} else if (table.applyAsInt((row-1) * width + col) >= table.applyAsInt(row * width + col-1)) {
+				row--;
+			} else {
+				col--;
+			}
+		}
+		return result;
 	}
 }
@@ -0,0 +1,70 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the ways of filling the LCS table against each other on random
+ * Strings: the single-threaded bottomUpFillTable, then the wavefront fill on
+ * ForkJoin pools of 1, 2, 4 and so on up to the number of cores, which is
+ * always the last even when it is not a power of 2, checking each time that
+ * the table comes out the same.
+ *
+ * Usage: java lcs.LCSBenchmark [length] [repetitions]
+ */
+public class LCSBenchmark {
+
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		Random random = new Random(282);
+		String rStr = randomString(random, length), cStr = randomString(random, length);
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		int[][] expected = LCS.bottomUpFillTable(rStr, cStr);
+		double sequential = time(repetitions, () -> LCS.bottomUpFillTable(rStr, cStr));
+		System.out.printf("%d x %d table, %d cores%n", length, length, cores);
+		System.out.printf("%-12s %10s %8s%n", "fill", "ms", "speedup");
+		System.out.printf("%-12s %10.1f %8s%n", "bottom-up", sequential, "-");
+		for (int parallelism = 1; parallelism <= cores; parallelism = next(parallelism, cores)) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			if (!Arrays.deepEquals(expected, LCS.wavefrontFillTable(rStr, cStr, pool))) {
+				throw new IllegalStateException("Wavefront table differs from bottom-up table");
+			}
+			double wavefront = time(repetitions, () -> LCS.wavefrontFillTable(rStr, cStr, pool));
+			System.out.printf("%-12s %10.1f %7.2fx%n", "wavefront " + parallelism, wavefront, sequential / wavefront);
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return The pool size after the given one, doubling up to cores, and
+	 *         past cores if that is already the given one
+	 */
+	private static int next(int parallelism, int cores) {
+		return parallelism < cores ? Math.min(2 * parallelism, cores) : cores + 1;
+	}
+
+	/**
+	 * @return Mean milliseconds the given fill takes, after a warm-up run
+	 */
+	private static double time(int repetitions, Runnable fill) {
+		fill.run();
+		long start = System.nanoTime();
+		for (int i = 0; i < repetitions; i++) {
+			fill.run();
+		}
+		return (System.nanoTime() - start) / 1e6 / repetitions;
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			result.append((char) ('A' + random.nextInt(4)));
+		}
+		return result.toString();
+	}
+
+}
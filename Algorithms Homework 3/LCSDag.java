@@ -0,0 +1,230 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The longest common subsequences of two Strings as a DAG over the cells of a
+ * filled LCS table. Every LCS is matched against both Strings as far right as
+ * it goes, so from cell (r, c) its last letter a sits at the last a of each
+ * prefix, at (pr, pc), and the rest of it is an LCS of the cell (pr, pc),
+ * whose value must be one less than that of (r, c). These edges, one per
+ * letter at most, lead from the cell of the whole table down to cells of value
+ * 0; each path spells out a different LCS backwards, and every LCS has exactly
+ * one path.
+ *
+ * Counting the paths counts the distinct LCSs without listing them, and
+ * walking them one at a time lists the LCSs in memory proportional to their
+ * length, where collecting them into a Set would keep them all and keep
+ * rebuilding the shared parts of them.
+ */
+public class LCSDag implements Iterable<String> {
+
+	private final int[][] memo;
+	private final int rLen, cLen, length;
+	// The letters found in both Strings, in order
+	private final char[] alphabet;
+	// lastR[a][r] is the index of the last alphabet[a] among the first r
+	// letters of the row String, or -1; the same for lastC along the cols
+	private final int[][] lastR, lastC;
+
+	private BigInteger count;
+
+	/**
+	 * Constructs the DAG of a table filled for the whole of both Strings, as by
+	 * bottomUpFillTable; a table filled only where top-down recursion reached
+	 * will not do.
+	 *
+	 * @param rStr The String found along the table's rows
+	 * @param cStr The String found along the table's cols
+	 * @param memo The filled table
+	 */
+	LCSDag(String rStr, String cStr, int[][] memo) {
+		this.memo = memo;
+		this.rLen = rStr.length();
+		this.cLen = cStr.length();
+		this.length = memo[rLen][cLen];
+
+		TreeSet<Character> inRows = new TreeSet<>(), shared = new TreeSet<>();
+		for (int i = 0; i < rLen; i++) {
+			inRows.add(rStr.charAt(i));
+		}
+		for (int j = 0; j < cLen; j++) {
+			if (inRows.contains(cStr.charAt(j))) {
+				shared.add(cStr.charAt(j));
+			}
+		}
+		this.alphabet = new char[shared.size()];
+		Map<Character, Integer> index = new HashMap<>();
+		for (char letter : shared) {
+			index.put(letter, index.size());
+			alphabet[index.size() - 1] = letter;
+		}
+		this.lastR = lastOccurrences(rStr, index);
+		this.lastC = lastOccurrences(cStr, index);
+	}
+
+	private int[][] lastOccurrences(String str, Map<Character, Integer> index) {
+		int[][] last = new int[alphabet.length][str.length() + 1];
+		for (int a = 0; a < alphabet.length; a++) {
+			last[a][0] = -1;
+		}
+		for (int i = 1; i <= str.length(); i++) {
+			for (int a = 0; a < alphabet.length; a++) {
+				last[a][i] = last[a][i - 1];
+			}
+			Integer a = index.get(str.charAt(i - 1));
+			if (a != null) {
+				last[a][i] = i - 1;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * @return The length of the longest common subsequences
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Counts the distinct longest common subsequences by counting the paths
+	 * reaching each cell, one value of the table at a time, so that only two
+	 * values' worth of cells are kept at once.
+	 *
+	 * @return The number of distinct longest common subsequences, 1 if that is
+	 *         only the empty String
+	 */
+	public BigInteger count() {
+		if (count == null) {
+			Map<Long, BigInteger> paths = new HashMap<>();
+			paths.put(cell(rLen, cLen), BigInteger.ONE);
+			for (int value = length; value > 0; value--) {
+				Map<Long, BigInteger> below = new HashMap<>();
+				for (Map.Entry<Long, BigInteger> entry : paths.entrySet()) {
+					int r = (int) (entry.getKey() >>> 32), c = (int) (long) entry.getKey();
+					for (int a = 0; a < alphabet.length; a++) {
+						if (edge(a, r, c)) {
+							below.merge(cell(lastR[a][r], lastC[a][c]), entry.getValue(), BigInteger::add);
+						}
+					}
+				}
+				paths = below;
+			}
+			BigInteger total = BigInteger.ZERO;
+			for (BigInteger reaching : paths.values()) {
+				total = total.add(reaching);
+			}
+			count = total;
+		}
+		return count;
+	}
+
+	/**
+	 * @return Whether the cell (r, c) has an edge for alphabet[a]
+	 */
+	private boolean edge(int a, int r, int c) {
+		int pr = lastR[a][r], pc = lastC[a][c];
+		return pr >= 0 && pc >= 0 && memo[pr][pc] == memo[r][c] - 1;
+	}
+
+	private static long cell(int r, int c) {
+		return (long) r << 32 | c;
+	}
+
+	/**
+	 * @return An Iterator over the distinct longest common subsequences, in no
+	 *         particular order, each built only when it is asked for
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Walk();
+	}
+
+	/**
+	 * @return A sequential Stream of the distinct longest common subsequences,
+	 *         built as it is consumed
+	 */
+	public Stream<String> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+				Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+
+	/**
+	 * Depth-first walk of the paths, keeping only the one it is on.
+	 */
+	private final class Walk implements Iterator<String> {
+		// Indexed by the value of the cell: the cell on the current path and
+		// the next letter to try from it
+		private final int[] rows = new int[length + 1], cols = new int[length + 1], tried = new int[length + 1];
+		// The letters of the current path; its cell of value v chose letters[v - 1]
+		private final char[] letters = new char[length];
+		private int value = length;
+		private boolean ready;
+
+		Walk() {
+			rows[length] = rLen;
+			cols[length] = cLen;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (!ready) {
+				ready = advance();
+			}
+			return ready;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ready = false;
+			// Carry on from the cell before the end of this path
+			value = 1;
+			return new String(letters);
+		}
+
+		/**
+		 * Follows the next untried edge down from the current cell, backing up
+		 * from cells with none left, until a path reaches a cell of value 0.
+		 *
+		 * @return Whether there was another path
+		 */
+		private boolean advance() {
+			while (value <= length) {
+				if (value == 0) {
+					return true;
+				}
+				int r = rows[value], c = cols[value];
+				int a = tried[value];
+				while (a < alphabet.length && !edge(a, r, c)) {
+					a++;
+				}
+				if (a < alphabet.length) {
+					tried[value] = a + 1;
+					letters[value - 1] = alphabet[a];
+					value--;
+					rows[value] = lastR[a][r];
+					cols[value] = lastC[a][c];
+					tried[value] = 0;
+				} else {
+					value++;
+				}
+			}
+			return false;
+		}
+	}
+
+}
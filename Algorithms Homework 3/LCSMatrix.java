@@ -0,0 +1,179 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * LCS lengths between every pair of a collection of Strings, computed in
+ * parallel on the common ForkJoin pool. Each pair is compared by the
+ * bit-parallel LCS length, with the match masks of each String made once for
+ * all the pairs it is the cols of, and the row vector kept per thread and
+ * reused from one pair to the next. Nothing static is written to, memoCheck
+ * least of all, so any number of matrices may be computed at once.
+ *
+ * Each task takes row i together with row count - 1 - i, the rows of the
+ * triangle above the diagonal, so that every task has about the same number
+ * of pairs.
+ */
+public final class LCSMatrix {
+
+	private LCSMatrix() {
+	}
+
+	/**
+	 * One of the Strings most like another, as found by topK.
+	 */
+	public static final class Neighbor {
+		/** Where the String is in the collection */
+		public final int index;
+		/** The length of its LCS with the String it is a neighbor of */
+		public final int length;
+		/** 2 * length over the sum of both Strings' lengths, from 0 to 1 */
+		public final double similarity;
+
+		Neighbor(int index, int length, double similarity) {
+			this.index = index;
+			this.length = length;
+			this.similarity = similarity;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d (%d, %.3f)", index, length, similarity);
+		}
+	}
+
+	// Most similar first, then lowest index, so that ties always go the same way
+	private static final Comparator<Neighbor> RANK = Comparator
+			.comparingDouble((Neighbor neighbor) -> -neighbor.similarity).thenComparingInt(neighbor -> neighbor.index);
+
+	/**
+	 * @return 2 * length / (m + n), the share of both Strings taken up by their
+	 *         LCS; 1 for two empty Strings
+	 */
+	public static double similarity(int length, int m, int n) {
+		return m + n == 0 ? 1 : 2.0 * length / (m + n);
+	}
+
+	/**
+	 * Computes the whole matrix of LCS lengths.
+	 *
+	 * @param sequences The Strings to compare with each other
+	 * @return The symmetric matrix whose entry [i][j] is the LCS length of
+	 *         Strings i and j, and [i][i] the length of String i
+	 */
+	public static int[][] lengths(List<String> sequences) {
+		int count = sequences.size();
+		int[][] matrix = new int[count][count];
+		forEachPair(sequences, (i, j, length) -> {
+			// Each pair is computed once, by one thread, which alone writes it
+			matrix[i][j] = length;
+			matrix[j][i] = length;
+		});
+		for (int i = 0; i < count; i++) {
+			matrix[i][i] = sequences.get(i).length();
+		}
+		return matrix;
+	}
+
+	/**
+	 * Computes only the k Strings most similar to each, so that large
+	 * collections need O(count * k) memory instead of the whole matrix.
+	 *
+	 * @param sequences The Strings to compare with each other
+	 * @param k         How many neighbors to keep for each String
+	 * @return For each String, its k most similar others, most similar first
+	 */
+	public static Neighbor[][] topK(List<String> sequences, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative");
+		}
+		int count = sequences.size();
+		List<PriorityQueue<Neighbor>> kept = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			// The worst neighbor kept at the head, ready to be replaced
+			kept.add(new PriorityQueue<>(k + 1, RANK.reversed()));
+		}
+		forEachPair(sequences, (i, j, length) -> {
+			double similarity = similarity(length, sequences.get(i).length(), sequences.get(j).length());
+			offer(kept.get(i), new Neighbor(j, length, similarity), k);
+			offer(kept.get(j), new Neighbor(i, length, similarity), k);
+		});
+
+		Neighbor[][] result = new Neighbor[count][];
+		for (int i = 0; i < count; i++) {
+			result[i] = kept.get(i).toArray(new Neighbor[0]);
+			Arrays.sort(result[i], RANK);
+		}
+		return result;
+	}
+
+	/**
+	 * Keeps the neighbor if it is among the k best; other threads offer to
+	 * the same queue, for the pairs they compute.
+	 */
+	private static void offer(PriorityQueue<Neighbor> queue, Neighbor neighbor, int k) {
+		synchronized (queue) {
+			if (queue.size() < k) {
+				queue.add(neighbor);
+			} else if (k > 0 && RANK.compare(neighbor, queue.peek()) < 0) {
+				queue.poll();
+				queue.add(neighbor);
+			}
+		}
+	}
+
+	/**
+	 * What to do with the LCS length of a pair.
+	 */
+	@FunctionalInterface
+	private interface PairConsumer {
+		void accept(int i, int j, int length);
+	}
+
+	/**
+	 * Computes the LCS length of every pair i < j in parallel and hands each
+	 * to the consumer, from whichever thread computed it.
+	 */
+	private static void forEachPair(List<String> sequences, PairConsumer consumer) {
+		int count = sequences.size();
+		// Each thread's row vector, grown to the longest cols it has met;
+		// made for this call alone, and dropped with it
+		ThreadLocal<long[][]> scratch = ThreadLocal.withInitial(() -> new long[][] { new long[0] });
+		IntStream.range(0, (count + 1) / 2).parallel().forEach(task -> {
+			long[][] v = scratch.get();
+			compareRow(sequences, task, consumer, v);
+			if (count - 1 - task != task) {
+				compareRow(sequences, count - 1 - task, consumer, v);
+			}
+		});
+	}
+
+	/**
+	 * Compares String i, along the cols, with every String after it.
+	 */
+	private static void compareRow(List<String> sequences, int i, PairConsumer consumer, long[][] v) {
+		String cols = sequences.get(i);
+		int n = cols.length();
+		if (n == 0) {
+			for (int j = i + 1; j < sequences.size(); j++) {
+				consumer.accept(i, j, 0);
+			}
+			return;
+		}
+		LCS.MatchMasks<long[]> masks = LCS.bitParallelMasks(cols);
+		int words = (n + 63) >>> 6;
+		if (v[0].length < words) {
+			v[0] = new long[words];
+		}
+		for (int j = i + 1; j < sequences.size(); j++) {
+			consumer.accept(i, j, LCS.bitParallelLCSLength(sequences.get(j), masks, n, v[0]));
+		}
+	}
+
+}
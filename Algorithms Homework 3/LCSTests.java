@@ -3,7 +3,16 @@ package lcs;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import java.util.HashSet;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.IOException;
 
 public class LCSTests {
     
@@ -184,4 +193,458 @@ public class LCSTests {
         );
     }
     
+    
+    // Linear-Space LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void LSLCSTest_t0() {
+        assertEquals("", LCS.linearSpaceLCS("", ""));
+        assertEquals("", LCS.linearSpaceLCS("A", "B"));
+        assertEquals("ABC", LCS.linearSpaceLCS("ABC", "ABC"));
+        assertTrue(LCS.bottomUpLCS("ABA", "BAA").contains(LCS.linearSpaceLCS("ABA", "BAA")));
+    }
+    
+    @Test
+    public void LSLCSTest_t1() {
+        // Any one of the LCSs will do, whichever String is longer
+        String rStr = "ACBDEBCADBEACDBAEDCB", cStr = "BDCABEDCAEB";
+        assertTrue(LCS.bottomUpLCS(rStr, cStr).contains(LCS.linearSpaceLCS(rStr, cStr)));
+        assertTrue(LCS.bottomUpLCS(cStr, rStr).contains(LCS.linearSpaceLCS(cStr, rStr, true)));
+        // Long enough for the ForkJoin tasks to split
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            a.append("ABCD".charAt(i * 7 % 4));
+            b.append("ABCD".charAt(i * i % 4));
+        }
+        assertEquals(LCS.linearSpaceLCS(a.toString(), b.toString()).length(),
+                LCS.linearSpaceLCS(a.toString(), b.toString(), true).length());
+    }
+    
+    
+    // Bit-Parallel LCS Length Tests
+    // -----------------------------------------------
+    @Test
+    public void BPLCSTest_t0() {
+        assertEquals(0, LCS.bitParallelLCSLength("", ""));
+        assertEquals(0, LCS.bitParallelLCSLength("A", "B"));
+        assertEquals(3, LCS.bitParallelLCSLength("ABC", "ABC"));
+        assertEquals(2, LCS.bitParallelLCSLength("ABA", "BAA"));
+        // Letters outside Latin-1
+        assertEquals(2, LCS.bitParallelLCSLength("\u03b1\u03b2\u03b3", "\u03b3\u03b1\u03b3"));
+    }
+    
+    @Test
+    public void BPLCSTest_t1() {
+        // Rows of one, two and several words, carries crossing words
+        for (int n : new int[] {63, 64, 65, 128, 200}) {
+            StringBuilder a = new StringBuilder(), b = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                a.append("ABCA".charAt(i * 7 % 4));
+                b.append("ABCD".charAt(i * i % 4));
+            }
+            LCS.bottomUpLCS(a.toString(), b.toString());
+            assertEquals(LCS.memoCheck[n][n], LCS.bitParallelLCSLength(a.toString(), b.toString()));
+            assertEquals(n, LCS.bitParallelLCSLength(a.toString(), a.toString()));
+        }
+    }
+    
+    
+    // Wavefront LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void WFLCSTest_t0() {
+        assertEquals(
+            new HashSet<>(Arrays.asList(
+                "AA", "BA"
+            )),
+            LCS.wavefrontLCS("ABA", "BAA")
+        );
+        assertArrayEquals(
+            new int[][] {
+                {0, 0, 0, 0},
+                {0, 0, 1, 1},
+                {0, 1, 1, 1},
+                {0, 1, 2, 2}
+            },
+            LCS.memoCheck
+        );
+    }
+    
+    @Test
+    public void WFLCSTest_t1() {
+        // Several tiles each way, the last ones partial
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < 700; i++) {
+            a.append("ABC".charAt(i * 7 % 3));
+            b.append("ABC".charAt(i * i % 3));
+        }
+        String rStr = a.toString(), cStr = b.substring(0, 555);
+        assertArrayEquals(
+            LCS.bottomUpFillTable(rStr, cStr),
+            LCS.wavefrontFillTable(rStr, cStr, ForkJoinPool.commonPool())
+        );
+    }
+    
+    
+    // LCS DAG Tests
+    // -----------------------------------------------
+    @Test
+    public void DAGLCSTest_t0() {
+        assertEquals(BigInteger.ONE, LCS.countLCS("", "ABC"));
+        assertEquals(BigInteger.valueOf(3), LCS.countLCS("ABCBDAB", "BDCABA"));
+        assertEquals(
+            new HashSet<>(Arrays.asList(
+                "BCBA", "BCAB", "BDAB"
+            )),
+            LCS.streamLCS("ABCBDAB", "BDCABA").collect(Collectors.toSet())
+        );
+        assertEquals(
+            LCS.bottomUpLCS("ABCABCABC", "BACBACBAC").size(),
+            LCS.countLCS("ABCABCABC", "BACBACBAC").intValue()
+        );
+    }
+    
+    @Test
+    public void DAGLCSTest_t1() {
+        // Far too many to collect, but counted and listed lazily
+        String rStr = "ABC".repeat(100), cStr = "BAC".repeat(100);
+        LCSDag dag = LCS.lcsDag(rStr, cStr);
+        assertTrue(dag.count().compareTo(BigInteger.TWO.pow(100)) > 0);
+        List<String> first = dag.stream().limit(1000).collect(Collectors.toList());
+        assertEquals(1000, new HashSet<>(first).size());
+        for (String lcs : first) {
+            assertEquals(dag.length(), lcs.length());
+        }
+    }
+    
+    
+    // Stack-Safe Top-Down LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void STDLCSTest_t0() {
+        assertEquals(0, LCS.topDownLCSLength("", "ABC").length);
+        // The cells topDownLCS solves for these, as in TDLCSTest_t4
+        LCS.TopDownResult result = LCS.topDownLCSLength("ABA", "BAA");
+        assertEquals(2, result.length);
+        assertEquals(4, result.cellsVisited);
+        assertEquals(16, result.tableSize);
+    }
+    
+    @Test
+    public void STDLCSTest_t1() {
+        // Far deeper than the call stack would go, and only the diagonal visited
+        StringBuilder a = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            a.append("ACGT".charAt(i * i % 7 % 4));
+        }
+        LCS.TopDownResult result = LCS.topDownLCSLength(a.toString(), a.toString());
+        assertEquals(20000, result.length);
+        assertEquals(20000, result.cellsVisited);
+        assertTrue(result.sparse);
+        // Visiting most of the table falls back to a dense memo
+        StringBuilder b = new StringBuilder();
+        for (long x = 282; b.length() < 2000; x = x * 6364136223846793005L + 1442695040888963407L) {
+            b.append("ACGT".charAt((int) (x >>> 62)));
+        }
+        String rStr = b.substring(0, 1000), cStr = b.substring(1000);
+        result = LCS.topDownLCSLength(rStr, cStr);
+        assertEquals(LCS.bitParallelLCSLength(rStr, cStr), result.length);
+        assertFalse(result.sparse);
+    }
+    
+    
+    // Sparse LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void SPLCSTest_t0() {
+        assertEquals("", LCS.sparseLCS("", ""));
+        assertEquals("", LCS.sparseLCS("A", "B"));
+        assertEquals("ABC", LCS.sparseLCS("ABC", "ABC"));
+        assertTrue(LCS.bottomUpLCS("ABA", "BAA").contains(LCS.sparseLCS("ABA", "BAA")));
+        String rStr = "ACBDEBCADBEACDBAEDCB", cStr = "BDCABEDCAEB";
+        assertTrue(LCS.bottomUpLCS(rStr, cStr).contains(LCS.sparseLCS(rStr, cStr)));
+        assertTrue(LCS.bottomUpLCS(cStr, rStr).contains(LCS.adaptiveLCS(cStr, rStr)));
+    }
+    
+    @Test
+    public void SPLCSTest_t1() {
+        // Letters from a large alphabet, so that few of them match
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            a.append((char) ('\u4e00' + i * 7 % 3001));
+            b.append((char) ('\u4e00' + i * i % 3001));
+        }
+        String sparse = LCS.sparseLCS(a.toString(), b.toString());
+        assertEquals(LCS.bitParallelLCSLength(a.toString(), b.toString()), sparse.length());
+        assertEquals(sparse, LCS.adaptiveLCS(a.toString(), b.toString()));
+        // Few letters, many matches: the table is cheaper, with an LCS as long
+        StringBuilder c = new StringBuilder(), d = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            c.append("ABCD".charAt(i * 7 % 4));
+            d.append("ABCD".charAt(i * i % 4));
+        }
+        assertEquals(LCS.sparseLCS(c.toString(), d.toString()).length(),
+                LCS.adaptiveLCS(c.toString(), d.toString()).length());
+    }
+    
+    
+    // Diff LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void DIFFLCSTest_t0() {
+        assertEquals("", LCS.diffLCS("", "ABC"));
+        assertEquals("ABC", LCS.diffLCS("ABC", "ABC"));
+        assertTrue(LCS.bottomUpLCS("ABA", "BAA").contains(LCS.diffLCS("ABA", "BAA")));
+        // Myers' own example: 5 edits, 4 letters kept
+        Diff<Character> diff = Diff.of("ABCABBA", "CBABAC");
+        assertEquals(5, diff.getDistance());
+        assertTrue(LCS.bottomUpLCS("ABCABBA", "CBABAC").contains(
+            diff.getLCS().stream().map(String::valueOf).collect(Collectors.joining())));
+        assertEquals(Arrays.asList('C', 'B', 'A', 'B', 'A', 'C'), diff.apply());
+    }
+    
+    @Test
+    public void DIFFLCSTest_t1() {
+        Diff<String> diff = Diff.ofLines("a\nb\nc\nd", "a\nc\nd\ne");
+        assertEquals(Arrays.asList("a", "c", "d"), diff.getLCS());
+        assertEquals(Arrays.asList(Diff.Op.KEEP, Diff.Op.DELETE, Diff.Op.KEEP, Diff.Op.INSERT),
+            diff.getEdits().stream().map(edit -> edit.op).collect(Collectors.toList()));
+        // Near-identical Strings far too long for the table
+        StringBuilder a = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            a.append("ABCDEFGHIJ".charAt(i % 997 * (i % 991) % 10));
+        }
+        StringBuilder b = new StringBuilder(a).deleteCharAt(150000).insert(70000, 'Z').deleteCharAt(10);
+        assertEquals(199998, LCS.diffLCS(a.toString(), b.toString()).length());
+    }
+    
+    
+    // Banded LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void BDLCSTest_t0() {
+        assertEquals(0, LCS.bandedLCSLength("", "", 0));
+        assertEquals(0, LCS.bandedLCSLength("BB", "", 2));
+        assertEquals(-1, LCS.bandedLCSLength("BB", "", 1));
+        // ABA -> BAA takes a deletion and an insertion
+        assertEquals(2, LCS.bandedLCSLength("ABA", "BAA", 2));
+        assertEquals(-1, LCS.bandedLCSLength("ABA", "BAA", 1));
+        assertTrue(LCS.withinEdits("ABCBDAB", "BDCABA", 5));
+        assertFalse(LCS.withinEdits("ABCBDAB", "BDCABA", 4));
+    }
+    
+    @Test
+    public void BDLCSTest_t1() {
+        // Far too long for the table, but only the band is filled
+        StringBuilder a = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            a.append("ABCDEFGHIJ".charAt(i % 997 * (i % 991) % 10));
+        }
+        StringBuilder b = new StringBuilder(a).deleteCharAt(150000).insert(70000, 'Z').deleteCharAt(10);
+        assertEquals(199998, LCS.bandedLCSLength(a.toString(), b.toString(), 3));
+        assertFalse(LCS.withinEdits(a.toString(), b.toString(), 2));
+        // Unrelated Strings are given up on within the first rows
+        assertFalse(LCS.withinEdits(a.toString(), a.reverse().toString(), 1000));
+    }
+    
+    
+    // Token LCS Tests
+    // -----------------------------------------------
+    @Test
+    public void TKLCSTest_t0() {
+        assertArrayEquals(new int[0], LCS.tokenLCS(new int[0], new int[] {1, 2}));
+        assertArrayEquals(new int[] {1, 2, 3}, LCS.tokenLCS(new int[] {1, 2, 3}, new int[] {1, 2, 3}));
+        assertArrayEquals(new int[] {7, 9}, LCS.tokenLCS(new int[] {7, 8, 9}, new int[] {9, 7, 9}));
+        // Past 255 tokens the table holds shorts instead of bytes
+        int[] a = new int[1000], b = new int[1000];
+        for (int i = 0; i < 1000; i++) {
+            a[i] = i * 7 % 4;
+            b[i] = i * i % 4;
+        }
+        StringBuilder rStr = new StringBuilder(), cStr = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            rStr.append((char) ('A' + a[i]));
+            cStr.append((char) ('A' + b[i]));
+        }
+        assertEquals(LCS.bitParallelLCSLength(rStr.toString(), cStr.toString()), LCS.tokenLCS(a, b).length);
+    }
+    
+    @Test
+    public void TKLCSTest_t1() {
+        assertEquals(Arrays.asList("a", "c", "d"), LCS.lineLCS("a\nb\nc\r\nd", "a\nc\nd\ne"));
+        assertEquals(Arrays.asList("the", "brown", "fox"),
+            LCS.wordLCS("  the quick brown fox ", "the brown  dog fox"));
+        // Letters outside the BMP are single tokens, never half matched
+        assertEquals("a\uD83D\uDE00\uD83D\uDE01",
+            LCS.codePointLCS("a\uD83D\uDE00b\uD83D\uDE01", "\uD83D\uDE01a\uD83D\uDE00\uD83D\uDE01"));
+        assertEquals("", LCS.codePointLCS("\uD83D\uDE00", "\uD83D\uDE01"));
+        Tokens tokens = new Tokens();
+        assertArrayEquals(new int[] {0, 1, 0}, tokens.words("to be to"));
+        assertArrayEquals(new int[] {2, 1}, tokens.words("not be"));
+        assertEquals("be", tokens.token(1));
+    }
+    
+    
+    // LCS Matrix Tests
+    // -----------------------------------------------
+    @Test
+    public void MXLCSTest_t0() {
+        List<String> sequences = Arrays.asList("ABA", "BAA", "", "ABCBDAB", "BDCABA");
+        int[][] lengths = LCSMatrix.lengths(sequences);
+        for (int i = 0; i < sequences.size(); i++) {
+            for (int j = 0; j < sequences.size(); j++) {
+                assertEquals(
+                    LCS.bottomUpLCS(sequences.get(i), sequences.get(j)).iterator().next().length(),
+                    lengths[i][j]
+                );
+            }
+        }
+        assertEquals(0, LCSMatrix.lengths(Arrays.asList()).length);
+    }
+    
+    @Test
+    public void MXLCSTest_t1() {
+        // Long enough for masks of several words, many enough for many tasks
+        List<String> sequences = new ArrayList<>();
+        for (int i = 0; i < 41; i++) {
+            StringBuilder sequence = new StringBuilder();
+            for (int j = 0; j < 100 + i * 5; j++) {
+                sequence.append("ABCDE".charAt((i * j + j * j) % 5));
+            }
+            sequences.add(sequence.toString());
+        }
+        int[][] lengths = LCSMatrix.lengths(sequences);
+        LCSMatrix.Neighbor[][] top = LCSMatrix.topK(sequences, 3);
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(3, top[i].length);
+            for (int j = 0; j < sequences.size(); j++) {
+                if (i != j) {
+                    assertEquals(LCS.bitParallelLCSLength(sequences.get(i), sequences.get(j)), lengths[i][j]);
+                    // Nothing left out is more similar than the last kept
+                    double similarity = LCSMatrix.similarity(lengths[i][j],
+                        sequences.get(i).length(), sequences.get(j).length());
+                    int other = j;
+                    assertTrue(similarity <= top[i][2].similarity
+                        || Arrays.stream(top[i]).anyMatch(neighbor -> neighbor.index == other));
+                }
+            }
+            assertTrue(top[i][0].similarity >= top[i][1].similarity && top[i][1].similarity >= top[i][2].similarity);
+        }
+    }
+    
+    // Mapped File LCS Tests
+    // -----------------------------------------------
+    /**
+     * Deletes a file that a FileLCS may still have mapped, which some
+     * platforms refuse until the mapping is collected
+     */
+    private static void deleteMapped(Path file) {
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+    
+    @Test
+    public void FLLCSTest_t0() throws Exception {
+        Path a = Files.createTempFile("lcs", ".a"), b = Files.createTempFile("lcs", ".b");
+        Path empty = Files.createTempFile("lcs", ".empty");
+        Path checkpoints = Files.createTempFile("lcs", ".rows");
+        try {
+            Files.write(a, "ABCBDAB".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(b, "BDCABA".getBytes(StandardCharsets.ISO_8859_1));
+            FileLCS files = new FileLCS(a, b);
+            assertEquals(4, files.length());
+            assertEquals(4, files.length(checkpoints, 2));
+            StringBuilder lcs = new StringBuilder();
+            files.alignment(checkpoints, (i, j) -> lcs.insert(0, "ABCBDAB".charAt((int) i)));
+            assertTrue(LCS.bottomUpLCS("ABCBDAB", "BDCABA").contains(lcs.toString()));
+            
+            // A fresh file, as b is still mapped
+            FileLCS none = new FileLCS(a, empty);
+            assertEquals(0, none.length());
+            assertEquals(0, none.length(checkpoints));
+        } finally {
+            deleteMapped(a);
+            deleteMapped(b);
+            deleteMapped(empty);
+            Files.delete(checkpoints);
+        }
+    }
+    
+    @Test
+    public void FLLCSTest_t1() throws Exception {
+        // Rows enough for many strips, cols for several words, the shorter first
+        byte[] x = new byte[300], y = new byte[5000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (byte) "ACGT".charAt(i * 7 % 11 % 4);
+        }
+        for (int j = 0; j < y.length; j++) {
+            y[j] = (byte) "ACGT".charAt(j % 997 * (j % 991) % 13 % 4);
+        }
+        Path a = Files.createTempFile("lcs", ".a"), b = Files.createTempFile("lcs", ".b");
+        Path checkpoints = Files.createTempFile("lcs", ".rows");
+        try {
+            Files.write(a, x);
+            Files.write(b, y);
+            int expected = LCS.bitParallelLCSLength(new String(x, StandardCharsets.ISO_8859_1),
+                new String(y, StandardCharsets.ISO_8859_1));
+            FileLCS files = new FileLCS(a, b);
+            assertEquals(expected, files.length(checkpoints, 64));
+            List<long[]> matches = new ArrayList<>();
+            files.alignment(checkpoints, (i, j) -> matches.add(0, new long[] { i, j }));
+            assertEquals(expected, matches.size());
+            for (int k = 0; k < matches.size(); k++) {
+                long[] match = matches.get(k);
+                assertEquals(x[(int) match[0]], y[(int) match[1]]);
+                if (k > 0) {
+                    assertTrue(match[0] > matches.get(k - 1)[0] && match[1] > matches.get(k - 1)[1]);
+                }
+            }
+        } finally {
+            deleteMapped(a);
+            deleteMapped(b);
+            Files.delete(checkpoints);
+        }
+    }
+    
+    @Test
+    public void FLLCSTest_t2() throws Exception {
+        // Strips of 64 bytes hold only 2 rows, so every strip is split again and again
+        byte[] x = new byte[3000], y = new byte[200];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (byte) "ACGT".charAt(i % 89 * (i % 83) % 7 % 4);
+        }
+        for (int j = 0; j < y.length; j++) {
+            y[j] = (byte) "ACGT".charAt(j * 5 % 9 % 4);
+        }
+        Path a = Files.createTempFile("lcs", ".a"), b = Files.createTempFile("lcs", ".b");
+        Path checkpoints = Files.createTempFile("lcs", ".rows");
+        try {
+            Files.write(a, x);
+            Files.write(b, y);
+            int expected = LCS.bitParallelLCSLength(new String(x, StandardCharsets.ISO_8859_1),
+                new String(y, StandardCharsets.ISO_8859_1));
+            FileLCS files = new FileLCS(a, b, 64);
+            assertEquals(expected, files.length(checkpoints));
+            // About the square root of the rows are checkpointed
+            assertTrue(Files.size(checkpoints) < 100 * 4 * 8);
+            List<long[]> matches = new ArrayList<>();
+            files.alignment(checkpoints, (i, j) -> matches.add(0, new long[] { i, j }));
+            assertEquals(expected, matches.size());
+            for (int k = 0; k < matches.size(); k++) {
+                long[] match = matches.get(k);
+                assertEquals(x[(int) match[0]], y[(int) match[1]]);
+                if (k > 0) {
+                    assertTrue(match[0] > matches.get(k - 1)[0] && match[1] > matches.get(k - 1)[1]);
+                }
+            }
+        } finally {
+            deleteMapped(a);
+            deleteMapped(b);
+            Files.delete(checkpoints);
+        }
+    }
+    
 }
@@ -0,0 +1,89 @@
+// Jigar Swaminarayan
+package lcs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the tokens of texts, be they lines, words or code points, so that
+ * LCS.tokenLCS can compare them as ints. Every distinct token gets the next
+ * id from 0 up, and keeps it for as long as the Tokens is used, so that two
+ * texts tokenized by the same Tokens can be compared with each other.
+ */
+public final class Tokens {
+
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final List<String> vocabulary = new ArrayList<>();
+
+	/**
+	 * @return The id of the token, numbering it if it is new
+	 */
+	public int intern(String token) {
+		Integer id = ids.get(token);
+		if (id == null) {
+			id = vocabulary.size();
+			ids.put(token, id);
+			vocabulary.add(token);
+		}
+		return id;
+	}
+
+	/**
+	 * @return The token numbered id
+	 */
+	public String token(int id) {
+		return vocabulary.get(id);
+	}
+
+	/**
+	 * @return The number of distinct tokens seen so far
+	 */
+	public int size() {
+		return vocabulary.size();
+	}
+
+	/**
+	 * @return The ids of the text's lines, which end at \n or \r\n
+	 */
+	public int[] lines(String text) {
+		return internAll(text.isEmpty() ? new String[0] : text.split("\r?\n", -1));
+	}
+
+	/**
+	 * @return The ids of the text's words, which are separated by whitespace
+	 */
+	public int[] words(String text) {
+		String trimmed = text.strip();
+		return internAll(trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+"));
+	}
+
+	/**
+	 * @return The ids of the text's code points, so that letters outside the
+	 *         Basic Multilingual Plane count as one token, not two
+	 */
+	public int[] codePoints(String text) {
+		return text.codePoints().mapToObj(Character::toString).mapToInt(this::intern).toArray();
+	}
+
+	private int[] internAll(String[] tokens) {
+		int[] result = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			result[i] = intern(tokens[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The tokens numbered ids, in order
+	 */
+	public List<String> tokens(int[] ids) {
+		List<String> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(token(id));
+		}
+		return result;
+	}
+
+}